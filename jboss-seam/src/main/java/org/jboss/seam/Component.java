@@ -39,6 +39,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -50,6 +51,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javassist.util.proxy.MethodFilter;
 import javassist.util.proxy.MethodHandler;
@@ -72,6 +75,7 @@ import org.jboss.seam.annotations.Out;
 import org.jboss.seam.annotations.PerNestedConversation;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.annotations.Startup;
+import org.jboss.seam.annotations.SynchronizationType;
 import org.jboss.seam.annotations.Synchronized;
 import org.jboss.seam.annotations.Unwrap;
 import org.jboss.seam.annotations.bpm.BeginTask;
@@ -96,14 +100,18 @@ import org.jboss.seam.core.Mutable;
 import org.jboss.seam.core.Expressions.MethodExpression;
 import org.jboss.seam.core.Expressions.ValueExpression;
 import org.jboss.seam.databinding.DataBinder;
+import org.jboss.seam.databinding.DataBinders;
 import org.jboss.seam.databinding.DataSelector;
 import org.jboss.seam.ejb.SeamInterceptor;
 import org.jboss.seam.intercept.ClientSideInterceptor;
 import org.jboss.seam.intercept.Interceptor;
 import org.jboss.seam.intercept.JavaBeanInterceptor;
+import org.jboss.seam.intercept.MethodMetadata;
 import org.jboss.seam.intercept.Proxy;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.util.Accessor;
+import org.jboss.seam.util.AccessorFactory;
 import org.jboss.seam.util.Conversions;
 import org.jboss.seam.util.Naming;
 import org.jboss.seam.util.ProxyFactory;
@@ -129,6 +137,10 @@ public class Component extends Model
 
    private static final LogProvider log = Logging.getLogProvider(Component.class);
    
+   // incremented whenever a component is (re)deployed, used to
+   // invalidate the resolved outjection targets of compiled components
+   private static final AtomicInteger deployments = new AtomicInteger();
+   
    private ComponentType type;
    private String name;
    private ScopeType scope;
@@ -138,6 +150,7 @@ public class Component extends Model
    private String[] dependencies;
    private boolean synchronize;
    private long timeout;
+   private SynchronizationType synchronizationType;
    private boolean secure;
 
    private Set<Class> businessInterfaces;
@@ -165,9 +178,15 @@ public class Component extends Model
    private List<BijectedAttribute> dataModelGetters = new ArrayList<BijectedAttribute>();
    private List<BijectedAttribute> pcAttributes = new ArrayList<BijectedAttribute>();
    private Map<String, BijectedAttribute> dataModelSelectionSetters = new HashMap<String, BijectedAttribute>();
+   private Map<String, DataBinder> dataBinders = new HashMap<String, DataBinder>();
+   private Map<String, DataSelector> dataSelectors = new HashMap<String, DataSelector>();
    
    private List<Interceptor> interceptors = new ArrayList<Interceptor>();
    private List<Interceptor> clientSideInterceptors = new ArrayList<Interceptor>();
+   private List<Interceptor> allInterceptors;
+   // never modified once assigned, so it is read without locking
+   private volatile Map<InterceptorType, Map<Method, int[]>> interceptorChains = createInterceptorChains();
+   private final Map<Method, MethodMetadata> methodMetadata = new ConcurrentHashMap<Method, MethodMetadata>();
 
    private Map<Method, InitialValue> initializerSetters = new HashMap<Method, InitialValue>();
    private Map<Field, InitialValue> initializerFields = new HashMap<Field, InitialValue>();
@@ -243,6 +262,7 @@ public class Component extends Model
 
       initMembers( getBeanClass(), applicationContext );
       checkDefaultRemoveMethod();
+      initCompiledBijection(applicationContext);
 
       businessInterfaces = getBusinessInterfaces( getBeanClass() );
 
@@ -254,6 +274,8 @@ public class Component extends Model
       initInitializers(applicationContext);
       
       registerConverterOrValidator(applicationContext);
+      
+      deployments.incrementAndGet();
 
    }
 
@@ -308,6 +330,9 @@ public class Component extends Model
          timeout = getBeanClass().isAnnotationPresent(Synchronized.class) ?
                getBeanClass().getAnnotation(Synchronized.class).timeout() :
                Synchronized.DEFAULT_TIMEOUT;
+         synchronizationType = getBeanClass().isAnnotationPresent(Synchronized.class) ?
+               getBeanClass().getAnnotation(Synchronized.class).type() :
+               SynchronizationType.FAIR;
       }
       
       if (hasAnnotation && !interceptionEnabled)
@@ -356,6 +381,64 @@ public class Component extends Model
       }
    }
 
+   /**
+    * If compiled bijection is enabled, replace the reflective
+    * bijected attributes with ones that use generated accessors
+    * and cache the resolved target component of @Out attributes.
+    */
+   private void initCompiledBijection(Context applicationContext)
+   {
+      if (applicationContext!=null) //for unit tests!
+      {
+         Init init = (Init) applicationContext.get( Seam.getComponentName(Init.class) );
+         if ( init!=null && init.isCompiledBijection() )
+         {
+            compileAttributes(inAttributes);
+            compileAttributes(outAttributes);
+            compileAttributes(parameterSetters);
+            compileAttributes(dataModelGetters);
+            for ( Map.Entry<String, BijectedAttribute> entry: dataModelSelectionSetters.entrySet() )
+            {
+               entry.setValue( compileAttribute( entry.getValue() ) );
+            }
+         }
+      }
+   }
+
+   private <T extends BijectedAttribute> void compileAttributes(List<T> attributes)
+   {
+      for (int i=0; i<attributes.size(); i++)
+      {
+         attributes.set( i, (T) compileAttribute( attributes.get(i) ) );
+      }
+   }
+
+   private BijectedAttribute compileAttribute(BijectedAttribute attribute)
+   {
+      Accessor accessor = null;
+      if (attribute instanceof BijectedField)
+      {
+         accessor = AccessorFactory.createAccessor( ( (BijectedField) attribute ).getField() );
+      }
+      else if (attribute instanceof BijectedMethod)
+      {
+         Method method = ( (BijectedMethod) attribute ).getMethod();
+         accessor = method.getParameterTypes().length==0 ?
+               AccessorFactory.createAccessor(method, null) :
+               AccessorFactory.createAccessor(null, method);
+      }
+      else if (attribute instanceof BijectedProperty)
+      {
+         BijectedProperty property = (BijectedProperty) attribute;
+         accessor = AccessorFactory.createAccessor( property.getGetterMethod(), property.getSetterMethod() );
+      }
+      if ( log.isDebugEnabled() && accessor==null )
+      {
+         log.debug("using reflection for bijected attribute: " + getAttributeMessage( attribute.getName() ) );
+      }
+      return new CompiledBijectedAttribute(attribute, accessor);
+   }
+
    private void initNamespace(String componentName, Context applicationContext)
    {  
       if (applicationContext!=null) { //for unit tests!
@@ -583,6 +666,7 @@ public class Component extends Model
          {
             throw new IllegalStateException("Multiple @DataModelSelection setters for: " + name);
          }
+         addDataSelector( name, DataBinders.getDataSelector(ann) );
       }
 
       for ( Map.Entry<Field, Annotation> annotatedField: selectionFields.entrySet() )
@@ -595,6 +679,7 @@ public class Component extends Model
          {
             throw new IllegalStateException("Multiple @DataModelSelection fields for: " + name);
          }
+         addDataSelector( name, DataBinders.getDataSelector(ann) );
       }
 
    }
@@ -805,9 +890,11 @@ public class Component extends Model
       {
          if ( ann.annotationType().isAnnotationPresent(DataBinderClass.class) )
          {
-            String name = toName( createWrapper(ann).getVariableName(ann), method );
+            DataBinder wrapper = DataBinders.getDataBinder(ann);
+            String name = toName( wrapper.getVariableName(ann), method );
             dataModelGetters.add( new BijectedProperty(name, method, ann) );
             dataModelNames.add(name);
+            addDataBinder(name, wrapper);
          }
          if ( ann.annotationType().isAnnotationPresent(DataSelectorClass.class) )
          {
@@ -887,9 +974,11 @@ public class Component extends Model
       {
          if ( ann.annotationType().isAnnotationPresent(DataBinderClass.class) )
          {
-            String name = toName( createWrapper(ann).getVariableName(ann), field );
+            DataBinder wrapper = DataBinders.getDataBinder(ann);
+            String name = toName( wrapper.getVariableName(ann), field );
             dataModelGetters.add( new BijectedField(name, field, ann) );
             dataModelNames.add(name);
+            addDataBinder(name, wrapper);
          }
          if ( ann.annotationType().isAnnotationPresent(DataSelectorClass.class) )
          {
@@ -907,9 +996,25 @@ public class Component extends Model
       }
    }
 
+   private void addDataBinder(String name, DataBinder wrapper)
+   {
+      if ( DataBinders.isShareable( wrapper.getClass() ) )
+      {
+         dataBinders.put(name, wrapper);
+      }
+   }
+
+   private void addDataSelector(String name, DataSelector unwrapper)
+   {
+      if ( DataBinders.isShareable( unwrapper.getClass() ) )
+      {
+         dataSelectors.put(name, unwrapper);
+      }
+   }
+
    private String getDataModelSelectionName(Set<String> dataModelNames, boolean hasMultipleDataModels, String defaultDataModelName, Annotation ann)
    {
-      String name = createUnwrapper(ann).getVariableName(ann);
+      String name = DataBinders.getDataSelector(ann).getVariableName(ann);
       if ( name.length() == 0 )
       {
          if ( hasMultipleDataModels )
@@ -988,6 +1093,7 @@ public class Component extends Model
    {
       if (interceptor.isInterceptorEnabled())
       {
+         allInterceptors = null;
          if (interceptor.getType()==InterceptorType.SERVER) 
          {
             interceptors.add(interceptor);
@@ -996,7 +1102,20 @@ public class Component extends Model
          {
             clientSideInterceptors.add(interceptor);
          }
+         //after the interceptor is added, so that a chain computed 
+         //without it can only end up in the discarded maps
+         interceptorChains = createInterceptorChains();
+      }
+   }
+   
+   private static Map<InterceptorType, Map<Method, int[]>> createInterceptorChains()
+   {
+      Map<InterceptorType, Map<Method, int[]>> result = new EnumMap<InterceptorType, Map<Method, int[]>>(InterceptorType.class);
+      for ( InterceptorType type: InterceptorType.values() )
+      {
+         result.put( type, new ConcurrentHashMap<Method, int[]>() );
       }
+      return result;
    }
 
    private List<Interceptor> newSort(List<Interceptor> list)
@@ -1233,14 +1352,61 @@ public class Component extends Model
          case SERVER: return interceptors;
          case CLIENT: return clientSideInterceptors;
          case ANY:
-            List<Interceptor> all = new ArrayList<Interceptor>();
-            all.addAll(clientSideInterceptors);
-            all.addAll(interceptors);
+            List<Interceptor> all = allInterceptors;
+            if (all==null)
+            {
+               all = new ArrayList<Interceptor>();
+               all.addAll(clientSideInterceptors);
+               all.addAll(interceptors);
+               allInterceptors = all;
+            }
             return all;
          default: throw new IllegalArgumentException("no interceptor type specified");
       }
    }
 
+   /**
+    * The metadata of a method of this component, as passed
+    * to the interceptors of the component
+    */
+   public MethodMetadata getMethodMetadata(Method method)
+   {
+      MethodMetadata result = methodMetadata.get(method);
+      if (result==null)
+      {
+         result = new MethodMetadata(this, method);
+         methodMetadata.put(method, result);
+      }
+      return result;
+   }
+
+   /**
+    * The positions, in getInterceptors(type), of the interceptors
+    * which have something to do when the given method is called.
+    * The chain of each method is computed on its first call.
+    */
+   public int[] getInterceptorChain(InterceptorType type, Method method)
+   {
+      Map<Method, int[]> chains = interceptorChains.get(type);
+      int[] chain = chains.get(method);
+      if (chain==null)
+      {
+         List<Interceptor> interceptors = getInterceptors(type);
+         int[] positions = new int[ interceptors.size() ];
+         int length = 0;
+         for ( int i=0; i<interceptors.size(); i++ )
+         {
+            if ( interceptors.get(i).isInterceptorEnabled(method) )
+            {
+               positions[length++] = i;
+            }
+         }
+         chain = length==positions.length ? positions : Arrays.copyOf(positions, length);
+         chains.put(method, chain);
+      }
+      return chain;
+   }
+
    public List<Object> createUserInterceptors(InterceptorType type)
    {
       List<Interceptor> interceptors = getInterceptors(type);
@@ -1626,9 +1792,9 @@ public class Component extends Model
 
    private void injectDataModelSelection(Object bean, BijectedAttribute dataModelGetter)
    {
-      DataBinder wrapper = createWrapper( dataModelGetter.getAnnotation() );
       String name = dataModelGetter.getName();
       Annotation dataModelAnn = dataModelGetter.getAnnotation();
+      DataBinder wrapper = getDataBinder(name, dataModelAnn);
       ScopeType scope = wrapper.getVariableScope(dataModelAnn);
       
       Object dataModel = getOutScope(scope, this).getContext().get(name);
@@ -1649,7 +1815,7 @@ public class Component extends Model
             if (setter != null)
             {
                Annotation dataModelSelectionAnn = setter.getAnnotation();
-               Object selection = createUnwrapper(dataModelSelectionAnn).getSelection(dataModelSelectionAnn, dataModel);
+               Object selection = getDataSelector(name, dataModelSelectionAnn).getSelection(dataModelSelectionAnn, dataModel);
                setter.set(bean, selection);
             }
          }
@@ -1668,10 +1834,10 @@ public class Component extends Model
    private void outjectDataModel(Object bean, BijectedAttribute dataModelGetter)
    {
       
-      DataBinder wrapper = createWrapper( dataModelGetter.getAnnotation() );
       Object list = dataModelGetter.get(bean);
       String name = dataModelGetter.getName();
       Annotation dataModelAnn = dataModelGetter.getAnnotation();
+      DataBinder wrapper = getDataBinder(name, dataModelAnn);
       ScopeType scope = wrapper.getVariableScope(dataModelAnn);      
       Context context = getOutScope(scope, this).getContext();
       Object existingDataModel = context.get(name);
@@ -1698,28 +1864,16 @@ public class Component extends Model
          
    }
 
-   private static DataBinder createWrapper(Annotation dataModelAnn)
+   private DataBinder getDataBinder(String name, Annotation dataModelAnn)
    {
-      try
-      {
-         return dataModelAnn.annotationType().getAnnotation(DataBinderClass.class).value().newInstance();
-      }
-      catch (Exception e)
-      {
-         throw new RuntimeException(e);
-      }
+      DataBinder wrapper = dataBinders.get(name);
+      return wrapper==null ? DataBinders.getDataBinder(dataModelAnn) : wrapper;
    }
 
-   private static DataSelector createUnwrapper(Annotation dataModelAnn)
+   private DataSelector getDataSelector(String name, Annotation dataModelSelectionAnn)
    {
-      try
-      {
-         return dataModelAnn.annotationType().getAnnotation(DataSelectorClass.class).value().newInstance();
-      }
-      catch (Exception e)
-      {
-         throw new RuntimeException(e);
-      }
+      DataSelector unwrapper = dataSelectors.get(name);
+      return unwrapper==null ? DataBinders.getDataSelector(dataModelSelectionAnn) : unwrapper;
    }
 
    private static ScopeType getOutScope(ScopeType specifiedScope, Component component)
@@ -1759,12 +1913,14 @@ public class Component extends Model
    {
       for ( BijectedAttribute<Out> att: getOutAttributes() )
       {
-         outjectAttribute( att.getAnnotation(), att.getName(), bean, att.get(bean), enforceRequired );
+         outjectAttribute( att, bean, att.get(bean), enforceRequired );
       }
    }
 
-   private void outjectAttribute(Out out, String name, Object bean, Object value, boolean enforceRequired)
+   private void outjectAttribute(BijectedAttribute<Out> att, Object bean, Object value, boolean enforceRequired)
    {
+      Out out = att.getAnnotation();
+      String name = att.getName();
       
       if (value==null && enforceRequired && out.required())
       {
@@ -1778,7 +1934,9 @@ public class Component extends Model
          Component component = null;
          if ( out.scope()==UNSPECIFIED )
          {
-            component = Component.forName(name);
+            component = att instanceof CompiledBijectedAttribute ?
+                  ( (CompiledBijectedAttribute) att ).getTargetComponent() :
+                  Component.forName(name);
             if (value!=null && component!=null)
             {
                if ( !component.isInstance(value) )
@@ -2302,6 +2460,11 @@ public class Component extends Model
       return timeout;
    }
 
+   public SynchronizationType getSynchronizationType()
+   {
+      return synchronizationType;
+   }
+
    public Object callComponentMethod(Object instance, Method method, Object... parameters) {
       Class[] paramTypes = method.getParameterTypes();
       String methodName = method.getName();
@@ -2970,6 +3133,16 @@ public class Component extends Model
       {
          return getter.getType();
       }
+      
+      Method getGetterMethod()
+      {
+         return getter.getMethod();
+      }
+      
+      Method getSetterMethod()
+      {
+         return setter==null ? null : setter.getMethod();
+      }
 
       public void set(Object bean, Object value)
       {
@@ -3025,6 +3198,102 @@ public class Component extends Model
       }
    }
 
+   /**
+    * A bijected attribute that reads and writes the underlying
+    * field or property through a generated {@link Accessor},
+    * falling back to reflection when no accessor could be
+    * generated. Also caches the component an @Out attribute
+    * outjects to, until the next (re)deployment.
+    */
+   final class CompiledBijectedAttribute<T extends Annotation> implements BijectedAttribute<T>
+   {
+      private final BijectedAttribute<T> attribute;
+      private final Accessor accessor;
+      private volatile TargetComponent targetComponent;
+      
+      private CompiledBijectedAttribute(BijectedAttribute<T> attribute, Accessor accessor)
+      {
+         this.attribute = attribute;
+         this.accessor = accessor;
+      }
+      public String getName()
+      {
+         return attribute.getName();
+      }
+      public T getAnnotation()
+      {
+         return attribute.getAnnotation();
+      }
+      public Class getType()
+      {
+         return attribute.getType();
+      }
+      public void set(Object bean, Object value)
+      {
+         if (accessor==null)
+         {
+            attribute.set(bean, value);
+         }
+         else
+         {
+            try
+            {
+               accessor.set(bean, value);
+            }
+            catch (RuntimeException e)
+            {
+               throw new IllegalArgumentException("could not set attribute value: " + getAttributeMessage( getName() ), e);
+            }
+         }
+      }
+      public Object get(Object bean)
+      {
+         if (accessor==null)
+         {
+            return attribute.get(bean);
+         }
+         else
+         {
+            try
+            {
+               return accessor.get(bean);
+            }
+            catch (RuntimeException e)
+            {
+               throw new IllegalArgumentException("could not get attribute value: " + getAttributeMessage( getName() ), e);
+            }
+         }
+      }
+      Component getTargetComponent()
+      {
+         TargetComponent target = targetComponent;
+         int deployment = deployments.get();
+         if ( target==null || target.deployment!=deployment )
+         {
+            target = new TargetComponent( Component.forName( getName() ), deployment );
+            targetComponent = target;
+         }
+         return target.component;
+      }
+      @Override
+      public String toString()
+      {
+         return "CompiledBijectedAttribute(" + getName() + ')';
+      }
+   }
+   
+   private static final class TargetComponent
+   {
+      private final Component component;
+      private final int deployment;
+      
+      private TargetComponent(Component component, int deployment)
+      {
+         this.component = component;
+         this.deployment = deployment;
+      }
+   }
+
    public List<BijectedAttribute> getPersistenceContextAttributes()
    {
       return pcAttributes;
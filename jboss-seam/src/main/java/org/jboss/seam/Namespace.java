@@ -60,7 +60,10 @@ public class Namespace
       return Component.getInstance( qualifyName(key), create, allowAutocreation );
    }
 
-   private String qualifyName(String key)
+   /**
+    * The name of a component or context variable in this namespace
+    */
+   public String qualifyName(String key)
    {
       return name==null ? key : name + key;
    }
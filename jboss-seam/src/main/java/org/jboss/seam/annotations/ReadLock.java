@@ -0,0 +1,21 @@
+package org.jboss.seam.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a @Synchronized(type=READ_WRITE) component,
+ * or every method of the component, as only reading its state,
+ * so that calls to it may run concurrently with each other.
+ * 
+ * @see SynchronizationType#READ_WRITE
+ */
+@Target({TYPE, METHOD})
+@Retention(RUNTIME)
+@Documented
+public @interface ReadLock {}
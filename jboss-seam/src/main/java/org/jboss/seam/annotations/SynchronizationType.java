@@ -0,0 +1,36 @@
+package org.jboss.seam.annotations;
+
+/**
+ * How calls to a @Synchronized component are serialized.
+ * 
+ * @see Synchronized
+ */
+public enum SynchronizationType
+{
+   
+   /**
+    * Calls are serialized, and threads acquire the lock in 
+    * the order in which they asked for it.
+    */
+   FAIR,
+   
+   /**
+    * Calls are serialized, but a thread may acquire the lock
+    * ahead of threads which are already waiting for it. This
+    * gives a much better throughput than FAIR, at the cost of
+    * a less predictable wait.
+    */
+   UNFAIR,
+   
+   /**
+    * Calls to methods annotated @ReadLock, or to any method of
+    * a component annotated @ReadLock, may run concurrently with 
+    * each other, but not with calls to other methods, which 
+    * are serialized. A @ReadLock method may not call a method 
+    * of the same component which is not @ReadLock.
+    * 
+    * @see ReadLock
+    */
+   READ_WRITE
+   
+}
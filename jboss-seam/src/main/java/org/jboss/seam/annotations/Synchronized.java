@@ -32,5 +32,12 @@ public @interface Synchronized
     * @return the timeout in milliseconds
     */
    long timeout() default DEFAULT_TIMEOUT;
+   
+   /**
+    * How should calls be serialized?
+    * 
+    * @return FAIR by default
+    */
+   SynchronizationType type() default SynchronizationType.FAIR;
 }
 
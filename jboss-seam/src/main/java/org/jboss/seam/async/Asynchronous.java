@@ -92,6 +92,16 @@ public abstract class Asynchronous implements Serializable
       }
    }   
    
+   /**
+    * Can this be executed in the same contexts as other work,
+    * that is, does it not need to resume a business process
+    * or task?
+    */
+   boolean isBatchable()
+   {
+      return processId==null && taskId==null;
+   }
+   
    public abstract void execute(Object timer);
 
    protected abstract void handleException(Exception exception, Object timer);
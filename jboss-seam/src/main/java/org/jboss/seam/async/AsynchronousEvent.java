@@ -1,5 +1,10 @@
 package org.jboss.seam.async;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.core.Events;
 
 /**
@@ -36,6 +41,51 @@ public class AsynchronousEvent extends Asynchronous
       }.run();
    }
    
+   /**
+    * Run a batch of events, one after the other, in a single
+    * set of Seam contexts, set up for this event
+    */
+   void executeBatch(final List<? extends Runnable> batch)
+   {
+      new ContextualAsynchronousRequest(null)
+      {
+         
+         @Override
+         protected void process()
+         {
+            for (Runnable event: batch)
+            {
+               event.run();
+            }
+         }
+         
+      }.run();
+   }
+   
+   /**
+    * Raise the event in the current contexts
+    */
+   void raise(Object timer)
+   {
+      Contexts.getEventContext().set("timer", timer);
+      try
+      {
+         Events.instance().raiseEvent(type, parameters);
+      }
+      finally
+      {
+         Contexts.getEventContext().remove("timer");
+      }
+   }
+   
+   /**
+    * Two events with equal keys have the same effect
+    */
+   Object getCoalescingKey()
+   {
+      return Arrays.asList( type, parameters==null ? Collections.emptyList() : Arrays.asList(parameters) );
+   }
+   
    @Override
    public String toString()
    {
@@ -2,11 +2,21 @@ package org.jboss.seam.async;
 
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
@@ -16,11 +26,29 @@ import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
 
 /**
  * Dispatcher implementation that uses a java.util.concurrent
  * ScheduledThreadPoolExecutor.
  * 
+ * By default, each asynchronous event is a separate task, which
+ * sets up its own Seam contexts. When a batch size greater than
+ * one or a queue capacity is set, asynchronous events are instead
+ * queued, and the threads of the pool take them from the queue in
+ * batches. Consecutive events of the same type in a batch are 
+ * raised one after the other, in a single set of Seam contexts, 
+ * unless they resume a business process or task. Within a batch, 
+ * repeated events of a coalesced type, with equal parameters, are
+ * only raised once. When the queue is full, the rejection policy
+ * decides whether the caller blocks, the event is dropped, or the
+ * caller raises the event itself. A thread draining the queue
+ * never blocks on it, but raises the event itself. The queue is
+ * drained by at most one thread less than the size of the pool, 
+ * so that a thread is left for timed events and asynchronous 
+ * method calls, which are not queued.
+ * 
  * @author Gavin King
  *
  */
@@ -29,22 +57,196 @@ import org.jboss.seam.intercept.InvocationContext;
 @Install(precedence=BUILT_IN)
 public class ThreadPoolDispatcher extends AbstractDispatcher<Future, TimerSchedule>
 {
+   public static final String BLOCK = "block";
+   public static final String DROP = "drop";
+   public static final String CALLER_RUNS = "caller-runs";
+   
+   private static final LogProvider log = Logging.getLogProvider(ThreadPoolDispatcher.class);
+   
    private int threadPoolSize = 10; 
+   private int batchSize = 1;
+   private int queueCapacity;
+   private String rejectionPolicy = BLOCK;
+   private Set<String> coalescedEventTypes = Collections.emptySet();
    
    private ScheduledExecutorService executor;
+   private BlockingQueue<QueuedEvent> queue;
+   private final AtomicInteger drainers = new AtomicInteger();
+   private final ThreadLocal<Boolean> draining = new ThreadLocal<Boolean>();
    
    @Create
    public void startup() {
        executor = Executors.newScheduledThreadPool(threadPoolSize);
+       if ( isQueued() )
+       {
+          queue = queueCapacity>0 ? 
+                new ArrayBlockingQueue<QueuedEvent>(queueCapacity) : 
+                new LinkedBlockingQueue<QueuedEvent>();
+       }
+   }
+   
+   private boolean isQueued()
+   {
+      return batchSize>1 || queueCapacity>0;
    }
     
    public Future scheduleAsynchronousEvent(String type, Object... parameters)
    {  
+      if (queue!=null)
+      {
+         return queueAsynchronousEvent( new AsynchronousEvent(type, parameters) );
+      }
       RunnableAsynchronous runnableAsynchronous = new RunnableAsynchronous( new AsynchronousEvent(type, parameters) ); 
       Future future = executor.submit(runnableAsynchronous);
       runnableAsynchronous.setFuture(future);
       return future;
    }
+   
+   private Future queueAsynchronousEvent(AsynchronousEvent event)
+   {
+      QueuedEvent queuedEvent = new QueuedEvent(event);
+      if ( !queue.offer(queuedEvent) )
+      {
+         if ( DROP.equals(rejectionPolicy) )
+         {
+            log.debug("asynchronous event queue is full, dropping: " + event);
+            queuedEvent.cancel(false);
+            return queuedEvent;
+         }
+         else if ( CALLER_RUNS.equals(rejectionPolicy) || draining.get()!=null )
+         {
+            //a drainer which blocked could leave nothing draining the queue
+            queuedEvent.executeAlone();
+            return queuedEvent;
+         }
+         else
+         {
+            try
+            {
+               queue.put(queuedEvent);
+            }
+            catch (InterruptedException ie)
+            {
+               Thread.currentThread().interrupt();
+               queuedEvent.cancel(false);
+               return queuedEvent;
+            }
+         }
+      }
+      startDrainer();
+      return queuedEvent;
+   }
+   
+   private void startDrainer()
+   {
+      if ( acquireDrainer() )
+      {
+         executor.execute( new Runnable()
+         {
+            public void run()
+            {
+               drain();
+            }
+         } );
+      }
+   }
+   
+   /**
+    * Reserve one of the threads of the pool for draining the queue,
+    * unless that would leave no thread for the scheduled tasks
+    */
+   private boolean acquireDrainer()
+   {
+      int maxDrainers = Math.max(1, threadPoolSize-1);
+      while (true)
+      {
+         int current = drainers.get();
+         if ( current>=maxDrainers ) return false;
+         if ( drainers.compareAndSet(current, current+1) ) return true;
+      }
+   }
+   
+   private void drain()
+   {
+      draining.set(Boolean.TRUE);
+      boolean acquired = true;
+      try
+      {
+         List<QueuedEvent> batch = new ArrayList<QueuedEvent>(batchSize);
+         while (true)
+         {
+            queue.drainTo(batch, batchSize);
+            if ( batch.isEmpty() )
+            {
+               acquired = false;
+               drainers.decrementAndGet();
+               //an event may have been queued after we found the queue 
+               //empty, but before we stopped, without starting a drainer
+               if ( queue.isEmpty() || !acquireDrainer() ) return;
+               acquired = true;
+               continue;
+            }
+            try
+            {
+               executeBatch(batch);
+            }
+            catch (RuntimeException re)
+            {
+               log.error("exception executing batch of asynchronous events", re);
+            }
+            finally
+            {
+               batch.clear();
+            }
+         }
+      }
+      finally
+      {
+         draining.remove();
+         //also when an Error escapes from the batch
+         if (acquired)
+         {
+            drainers.decrementAndGet();
+         }
+      }
+   }
+   
+   private void executeBatch(List<QueuedEvent> batch)
+   {
+      Set<Object> raised = coalescedEventTypes.isEmpty() ? null : new HashSet<Object>();
+      List<QueuedEvent> run = new ArrayList<QueuedEvent>();
+      for (QueuedEvent queuedEvent: batch)
+      {
+         AsynchronousEvent event = queuedEvent.getEvent();
+         if ( raised!=null && coalescedEventTypes.contains( event.getType() ) && !raised.add( event.getCoalescingKey() ) )
+         {
+            //same as an event raised earlier in the batch
+            queuedEvent.coalesce();
+            continue;
+         }
+         if ( !event.isBatchable() )
+         {
+            executeRun(run);
+            queuedEvent.executeAlone();
+            continue;
+         }
+         if ( !run.isEmpty() && !run.get(0).getEvent().getType().equals( event.getType() ) )
+         {
+            executeRun(run);
+         }
+         run.add(queuedEvent);
+      }
+      executeRun(run);
+   }
+   
+   private void executeRun(List<QueuedEvent> run)
+   {
+      if ( !run.isEmpty() )
+      {
+         run.get(0).getEvent().executeBatch( new ArrayList<QueuedEvent>(run) );
+         run.clear();
+      }
+   }
     
    public Future scheduleTimedEvent(String type, TimerSchedule schedule, Object... parameters)
    {
@@ -113,6 +315,11 @@ public class ThreadPoolDispatcher extends AbstractDispatcher<Future, TimerSchedu
    @Destroy
    public void destroy()
    {
+      if (queue!=null && !queue.isEmpty())
+      {
+         log.warn("discarding " + queue.size() + " queued asynchronous events");
+         queue.clear();
+      }
       executor.shutdown();
       try
       {
@@ -135,6 +342,12 @@ public class ThreadPoolDispatcher extends AbstractDispatcher<Future, TimerSchedu
          this.async = async;
       }
       
+      RunnableAsynchronous(Asynchronous async, Future future)
+      {
+         this.async = async;
+         this.future = future;
+      }
+      
       public void run()
       {
          try
@@ -154,6 +367,72 @@ public class ThreadPoolDispatcher extends AbstractDispatcher<Future, TimerSchedu
       
    }
 
+   /**
+    * A queued asynchronous event, and its future
+    */
+   static class QueuedEvent extends FutureTask<Object>
+   {
+      private static final Runnable NOTHING = new Runnable() { public void run() {} };
+      
+      private final AsynchronousEvent event;
+      
+      QueuedEvent(final AsynchronousEvent event)
+      {
+         super(NOTHING, null);
+         this.event = event;
+      }
+      
+      AsynchronousEvent getEvent()
+      {
+         return event;
+      }
+      
+      /**
+       * Raise the event in the current contexts, as part
+       * of a batch
+       */
+      @Override
+      public void run()
+      {
+         if ( isDone() ) return;
+         try
+         {
+            event.raise(this);
+            set(null);
+         }
+         catch (Exception exception)
+         {
+            try
+            {
+               event.handleException(exception, this);
+            }
+            finally
+            {
+               setException(exception);
+            }
+         }
+      }
+      
+      /**
+       * Raise the event in its own contexts
+       */
+      void executeAlone()
+      {
+         new RunnableAsynchronous(event, this).run();
+         set(null);
+      }
+      
+      /**
+       * The event was not raised, because an equal 
+       * event was raised just before it
+       */
+      void coalesce()
+      {
+         set(null);
+      }
+      
+   }
+   
    public int getThreadPoolSize()
    {
       return threadPoolSize;
@@ -163,5 +442,66 @@ public class ThreadPoolDispatcher extends AbstractDispatcher<Future, TimerSchedu
    {
       this.threadPoolSize = threadPoolSize;
    }
+
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   /**
+    * The maximum number of queued asynchronous events raised 
+    * in a single set of Seam contexts
+    */
+   public void setBatchSize(int batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
+   public int getQueueCapacity()
+   {
+      return queueCapacity;
+   }
+
+   /**
+    * The maximum number of queued asynchronous events, or 0
+    * if the queue is unbounded
+    */
+   public void setQueueCapacity(int queueCapacity)
+   {
+      this.queueCapacity = queueCapacity;
+   }
+
+   public String getRejectionPolicy()
+   {
+      return rejectionPolicy;
+   }
+
+   /**
+    * What to do with an asynchronous event raised while the
+    * queue is full: block, drop or caller-runs
+    */
+   public void setRejectionPolicy(String rejectionPolicy)
+   {
+      if ( !BLOCK.equals(rejectionPolicy) && !DROP.equals(rejectionPolicy) && !CALLER_RUNS.equals(rejectionPolicy) )
+      {
+         throw new IllegalArgumentException("unknown rejection policy: " + rejectionPolicy);
+      }
+      this.rejectionPolicy = rejectionPolicy;
+   }
+
+   public Set<String> getCoalescedEventTypes()
+   {
+      return coalescedEventTypes;
+   }
+
+   /**
+    * The types of the events which are raised only once when 
+    * they occur several times, with equal parameters, in a batch
+    */
+   public void setCoalescedEventTypes(Set<String> coalescedEventTypes)
+   {
+      this.coalescedEventTypes = coalescedEventTypes==null ? 
+            Collections.<String>emptySet() : coalescedEventTypes;
+   }
    
 }
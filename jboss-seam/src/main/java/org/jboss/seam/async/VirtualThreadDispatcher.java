@@ -0,0 +1,301 @@
+package org.jboss.seam.async;
+
+import static org.jboss.seam.annotations.Install.BUILT_IN;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.Install;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.async.ThreadPoolDispatcher.RunnableAsynchronous;
+import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
+
+/**
+ * Dispatcher implementation that runs each asynchronous call
+ * or event on a new virtual thread, when the JVM has virtual
+ * threads, or else on a work-stealing thread pool. Suited to
+ * asynchronous methods which spend most of their time blocked
+ * on I/O.
+ *
+ * Timed and repeated calls are scheduled by a small pool of
+ * platform threads, which hand them over to the executor when
+ * they are due. A repetition which is due while the previous
+ * run of the call is still in progress is skipped. The future of
+ * a timed call is done when the call itself is done.
+ */
+@Scope(ScopeType.APPLICATION)
+@Name("org.jboss.seam.async.dispatcher")
+@Install(value=false, precedence=BUILT_IN)
+public class VirtualThreadDispatcher extends AbstractDispatcher<Future, TimerSchedule>
+{
+   private static final LogProvider log = Logging.getLogProvider(VirtualThreadDispatcher.class);
+
+   private int schedulerPoolSize = 1;
+   private int parallelism = Runtime.getRuntime().availableProcessors();
+
+   private ExecutorService executor;
+   private ScheduledExecutorService scheduler;
+
+   @Create
+   public void startup()
+   {
+      executor = createExecutor();
+      scheduler = Executors.newScheduledThreadPool(schedulerPoolSize, new SchedulerThreadFactory());
+   }
+
+   /**
+    * Use Executors.newVirtualThreadPerTaskExecutor(), or else
+    * Executors.newWorkStealingPool(), if the JVM has them
+    */
+   private ExecutorService createExecutor()
+   {
+      try
+      {
+         Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         ExecutorService result = (ExecutorService) method.invoke(null);
+         log.info("running asynchronous calls on virtual threads");
+         return result;
+      }
+      catch (Exception e) {}
+      try
+      {
+         Method method = Executors.class.getMethod("newWorkStealingPool", int.class);
+         ExecutorService result = (ExecutorService) method.invoke(null, parallelism);
+         log.info("virtual threads not available, running asynchronous calls on a work-stealing pool");
+         return result;
+      }
+      catch (Exception e) {}
+      log.info("virtual threads not available, running asynchronous calls on a thread pool");
+      return Executors.newFixedThreadPool(parallelism);
+   }
+
+   public Future scheduleAsynchronousEvent(String type, Object... parameters)
+   {
+      return submit( new RunnableAsynchronous( new AsynchronousEvent(type, parameters) ) );
+   }
+
+   public Future scheduleTimedEvent(String type, TimerSchedule schedule, Object... parameters)
+   {
+      return schedule( schedule, new RunnableAsynchronous( new AsynchronousEvent(type, parameters) ) );
+   }
+
+   public Future scheduleInvocation(InvocationContext invocation, Component component)
+   {
+      return schedule(
+               createTimerSchedule(invocation),
+               new RunnableAsynchronous( new AsynchronousInvocation(invocation, component) )
+            );
+   }
+
+   private Future submit(RunnableAsynchronous runnable)
+   {
+      Future future = executor.submit(runnable);
+      runnable.setFuture(future);
+      return future;
+   }
+
+   private Future schedule(TimerSchedule schedule, final RunnableAsynchronous runnable)
+   {
+      long delay;
+      if ( schedule.getExpiration()!=null )
+      {
+         delay = schedule.getExpiration().getTime() - new Date().getTime();
+      }
+      else if ( schedule.getDuration()!=null )
+      {
+         delay = schedule.getDuration();
+      }
+      else if ( schedule.getIntervalDuration()==null )
+      {
+         return submit(runnable);
+      }
+      else
+      {
+         delay = 0l;
+      }
+
+      //the scheduler thread only hands the call over to the executor
+      final ScheduledCall call = new ScheduledCall( runnable, schedule.getIntervalDuration()!=null );
+      Runnable handOff = new Runnable()
+      {
+         public void run()
+         {
+            call.handOff();
+         }
+      };
+
+      if ( schedule.getIntervalDuration()!=null )
+      {
+         call.setHandOff( scheduler.scheduleAtFixedRate( handOff, delay,
+                  schedule.getIntervalDuration(),
+                  TimeUnit.MILLISECONDS ) );
+      }
+      else
+      {
+         call.setHandOff( scheduler.schedule(handOff, delay, TimeUnit.MILLISECONDS) );
+      }
+      runnable.setFuture(call);
+      return call;
+   }
+
+   /**
+    * The future of a timed or repeated call, which, like the future
+    * of a task of a ScheduledThreadPoolExecutor, is done when the 
+    * call is done, or, for a repeated call, when it is cancelled. 
+    * Cancelling it also stops the scheduler from handing it over.
+    */
+   private class ScheduledCall extends FutureTask<Object>
+   {
+      private final boolean repeated;
+      private final AtomicBoolean running = new AtomicBoolean();
+      private volatile Future handOff;
+
+      ScheduledCall(Runnable runnable, boolean repeated)
+      {
+         super(runnable, null);
+         this.repeated = repeated;
+      }
+
+      void setHandOff(Future handOff)
+      {
+         this.handOff = handOff;
+         if ( isDone() )
+         {
+            handOff.cancel(false);
+         }
+      }
+
+      /**
+       * Run the call on the executor, skipping a repeated call 
+       * while its previous run is in progress
+       */
+      void handOff()
+      {
+         if ( isDone() ) return;
+         if ( !running.compareAndSet(false, true) )
+         {
+            log.debug("previous run of repeated call still in progress, skipping it");
+            return;
+         }
+         try
+         {
+            executor.execute(this);
+         }
+         catch (RuntimeException re)
+         {
+            running.set(false);
+            throw re;
+         }
+      }
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            if (!repeated)
+            {
+               super.run();
+            }
+            else if ( !runAndReset() )
+            {
+               //failed or was cancelled
+               cancelHandOff();
+            }
+         }
+         finally
+         {
+            running.set(false);
+         }
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+         boolean result = super.cancel(mayInterruptIfRunning);
+         cancelHandOff();
+         return result;
+      }
+
+      private void cancelHandOff()
+      {
+         Future future = handOff;
+         if (future!=null)
+         {
+            future.cancel(false);
+         }
+      }
+   }
+
+   @Destroy
+   public void destroy()
+   {
+      scheduler.shutdown();
+      executor.shutdown();
+      try
+      {
+         executor.awaitTermination(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   public int getSchedulerPoolSize()
+   {
+      return schedulerPoolSize;
+   }
+
+   /**
+    * The number of platform threads which start timed and
+    * repeated calls
+    */
+   public void setSchedulerPoolSize(int schedulerPoolSize)
+   {
+      this.schedulerPoolSize = schedulerPoolSize;
+   }
+
+   public int getParallelism()
+   {
+      return parallelism;
+   }
+
+   /**
+    * The number of threads of the pool used when the JVM does
+    * not have virtual threads
+    */
+   public void setParallelism(int parallelism)
+   {
+      this.parallelism = parallelism;
+   }
+
+   private static class SchedulerThreadFactory implements ThreadFactory
+   {
+      private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = delegate.newThread(runnable);
+         thread.setName( "seam-async-scheduler-" + thread.getName() );
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+}
@@ -21,6 +21,7 @@ import org.jboss.seam.core.Expressions;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.intercept.AbstractInterceptor;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.intercept.MethodMetadata;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
 import org.jboss.seam.util.Strings;
@@ -54,7 +55,7 @@ public class BusinessProcessInterceptor extends AbstractInterceptor
 
    private boolean beforeInvocation(InvocationContext invocationContext) 
    {
-      Method method = invocationContext.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( invocationContext.getMethod() );
       if ( method.isAnnotationPresent(StartTask.class) ) 
       {
          log.trace( "encountered @StartTask" );
@@ -96,7 +97,7 @@ public class BusinessProcessInterceptor extends AbstractInterceptor
 
    private Object afterInvocation(InvocationContext invocation, Object result)
    {
-      Method method = invocation.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( invocation.getMethod() );
       if ( result!=null || method.getReturnType().equals(void.class) ) //interpreted as "redisplay"
       {
          if ( method.isAnnotationPresent(CreateProcess.class) )
@@ -179,4 +180,16 @@ public class BusinessProcessInterceptor extends AbstractInterceptor
       return Contexts.isApplicationContextActive() && Init.instance().isJbpmInstalled();
    }
    
+   @Override
+   public boolean isInterceptorEnabled(Method interfaceMethod)
+   {
+      MethodMetadata method = getComponent().getMethodMetadata(interfaceMethod);
+      return method.isAnnotationPresent(StartTask.class) ||
+            method.isAnnotationPresent(BeginTask.class) ||
+            method.isAnnotationPresent(ResumeProcess.class) ||
+            method.isAnnotationPresent(EndTask.class) ||
+            method.isAnnotationPresent(CreateProcess.class) ||
+            method.isAnnotationPresent(org.jboss.seam.annotations.bpm.Transition.class);
+   }
+   
 }
@@ -69,20 +69,22 @@ public class BasicContext implements Context
 
    public void remove(String name)
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      ContextEvents.PRE_REMOVE_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
       map.remove(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      ContextEvents.POST_REMOVE_VARIABLE.raiseEvent(name);
    }
 
    public void set(String name, Object value)
    {
       // We can't raise a preSetVariable event for Events itself because it doesn't exist yet...
-      if ( !Seam.getComponentName(Events.class).equals(name) && Events.exists() ) 
+      if ( !Seam.getComponentName(Events.class).equals(name) ) 
       {
-         Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+         ContextEvents.PRE_SET_VARIABLE.raiseEvent(name);
       }
+      LookupCache.invalidate(name);
       map.put(name, value);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      ContextEvents.POST_SET_VARIABLE.raiseEvent(name);
    }
 
    public void flush() {}
@@ -15,7 +15,6 @@ import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.bpm.ProcessInstance;
 import org.jboss.seam.bpm.TaskInstance;
-import org.jboss.seam.core.Events;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
@@ -77,7 +76,8 @@ public class BusinessProcessContext implements Context
 
    public void set(String name, Object value) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+      ContextEvents.PRE_SET_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
       if (value==null)
       {
          //yes, we need this
@@ -88,7 +88,7 @@ public class BusinessProcessContext implements Context
          removals.remove(name);
          additions.put(name, value);
       }
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      ContextEvents.POST_SET_VARIABLE.raiseEvent(name);
    }
 
    public boolean isSet(String name) 
@@ -98,10 +98,11 @@ public class BusinessProcessContext implements Context
    
    public void remove(String name) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      ContextEvents.PRE_REMOVE_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
       additions.remove(name);
       removals.add(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      ContextEvents.POST_REMOVE_VARIABLE.raiseEvent(name);
    }
 
    public String[] getNames() 
@@ -142,6 +143,7 @@ public class BusinessProcessContext implements Context
    {
       additions.clear();
       removals.addAll( getNamesFromContext() );
+      LookupCache.reset();
    }
 
    /**
@@ -0,0 +1,76 @@
+package org.jboss.seam.contexts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.core.Events;
+import org.jboss.seam.core.Init;
+
+/**
+ * Raises the events that accompany changes to the contents
+ * of a context, such as org.jboss.seam.preSetVariable.name.
+ *
+ * Before building the name of an event, the observers known
+ * to {@link Init} are consulted, so that nothing is allocated
+ * or dispatched when no observer is interested in that kind
+ * of event. Event names built for observed events are kept,
+ * so that they are built once per variable name.
+ */
+class ContextEvents
+{
+
+   static final ContextEvents PRE_SET_VARIABLE = new ContextEvents("org.jboss.seam.preSetVariable.");
+   static final ContextEvents POST_SET_VARIABLE = new ContextEvents("org.jboss.seam.postSetVariable.");
+   static final ContextEvents PRE_REMOVE_VARIABLE = new ContextEvents("org.jboss.seam.preRemoveVariable.");
+   static final ContextEvents POST_REMOVE_VARIABLE = new ContextEvents("org.jboss.seam.postRemoveVariable.");
+   static final ContextEvents PRE_DESTROY = new ContextEvents("org.jboss.seam.preDestroy.");
+   static final ContextEvents PRE_DESTROY_CONTEXT = new ContextEvents("org.jboss.seam.preDestroyContext.");
+   static final ContextEvents POST_DESTROY_CONTEXT = new ContextEvents("org.jboss.seam.postDestroyContext.");
+
+   //don't keep the names of an unbounded number of variables
+   private static final int MAX_EVENT_NAMES = 1000;
+
+   private final String prefix;
+   private final ConcurrentMap<String, String> eventNames = new ConcurrentHashMap<String, String>();
+
+   private ContextEvents(String prefix)
+   {
+      this.prefix = prefix;
+   }
+
+   /**
+    * Raise the event for the given variable name or scope, if
+    * there might be an observer for it.
+    */
+   void raiseEvent(String name)
+   {
+      if ( isObserved() && Events.exists() )
+      {
+         Events.instance().raiseEvent( getEventName(name) );
+      }
+   }
+
+   private boolean isObserved()
+   {
+      Context applicationContext = Contexts.getApplicationContext();
+      Init init = applicationContext==null ? null : (Init) applicationContext.get(Init.class);
+      //without an Init, we can't tell, so assume that there is an observer
+      return init==null || init.isObservedEventPrefix(prefix);
+   }
+
+   String getEventName(String name)
+   {
+      String result = eventNames.get(name);
+      if (result==null)
+      {
+         result = prefix + name;
+         if ( eventNames.size()<MAX_EVENT_NAMES )
+         {
+            String previous = eventNames.putIfAbsent(name, result);
+            if (previous!=null) result = previous;
+         }
+      }
+      return result;
+   }
+
+}
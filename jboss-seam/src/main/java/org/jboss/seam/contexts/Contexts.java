@@ -9,12 +9,12 @@ package org.jboss.seam.contexts;
 import static javax.faces.event.PhaseId.RESTORE_VIEW;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.bpm.BusinessProcess;
 import org.jboss.seam.core.ConversationPropagation;
-import org.jboss.seam.core.Events;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.core.Manager;
 import org.jboss.seam.core.Mutable;
@@ -33,14 +33,32 @@ public class Contexts
 {
 
    private static final LogProvider log = Logging.getLogProvider(Contexts.class);
+   
+   private static final AtomicLong flushedAttributes = new AtomicLong();
+   private static final AtomicLong skippedAttributes = new AtomicLong();
 
-   static final ThreadLocal<Context> applicationContext = new ThreadLocal<Context>();
+   static final ThreadLocal<Context> applicationContext = new ContextThreadLocal();
    static final ThreadLocal<Context> methodContext = new ThreadLocal<Context>();
-   static final ThreadLocal<Context> eventContext = new ThreadLocal<Context>();
-   static final ThreadLocal<Context> pageContext = new ThreadLocal<Context>();
-   static final ThreadLocal<Context> sessionContext = new ThreadLocal<Context>();
-   static final ThreadLocal<Context> conversationContext = new ThreadLocal<Context>();
-   static final ThreadLocal<Context> businessProcessContext = new ThreadLocal<Context>();
+   static final ThreadLocal<Context> eventContext = new ContextThreadLocal();
+   static final ThreadLocal<Context> pageContext = new ContextThreadLocal();
+   static final ThreadLocal<Context> sessionContext = new ContextThreadLocal();
+   static final ThreadLocal<Context> conversationContext = new ContextThreadLocal();
+   static final ThreadLocal<Context> businessProcessContext = new ContextThreadLocal();
+
+   /**
+    * Drops the lookup cache of the thread whenever one of its 
+    * contexts is replaced. The method context is not cached, 
+    * since it is replaced on every component invocation.
+    */
+   private static class ContextThreadLocal extends ThreadLocal<Context>
+   {
+      @Override
+      public void set(Context context)
+      {
+         super.set(context);
+         LookupCache.reset();
+      }
+   }
 
    public static Context getEventContext() 
    {
@@ -193,7 +211,44 @@ public class Contexts
     */
    public static Object lookupInStatefulContexts(String name)
    {
-      if (isMethodContextActive())
+      LookupCache cache = LookupCache.instance();
+      if ( cache.isEnabled() )
+      {
+         if (isMethodContextActive())
+         {
+            Object result = getMethodContext().get(name);
+            if (result!=null)
+            {
+               if ( log.isTraceEnabled() ) log.trace("found in method context: " + name);
+               return result;
+            }
+         }
+         
+         ScopeType scope = cache.get(name);
+         if ( scope!=null && !isSetInSharedContext(name, scope) )
+         {
+            Context context = getCachedContext(scope);
+            Object result = context==null ? null : context.get(name);
+            if (result!=null)
+            {
+               if ( log.isTraceEnabled() ) log.trace("found in cached " + scope + " context: " + name);
+               cache.hit();
+               return result;
+            }
+         }
+         cache.miss();
+         return lookupInStatefulContexts(name, cache);
+      }
+      else
+      {
+         return lookupInStatefulContexts(name, null);
+      }
+   }
+   
+   private static Object lookupInStatefulContexts(String name, LookupCache cache)
+   {
+      // when caching, the method context has already been searched
+      if ( cache==null && isMethodContextActive() )
       {
          Object result = getMethodContext().get(name);
          if (result!=null)
@@ -209,6 +264,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in event context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.EVENT);
             return result;
          }
       }
@@ -219,6 +275,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in page context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.PAGE);
             return result;
          }
       }
@@ -229,6 +286,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in conversation context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.CONVERSATION);
             return result;
          }
       }
@@ -239,6 +297,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in session context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.SESSION);
             return result;
          }
       }
@@ -249,6 +308,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in business process context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.BUSINESS_PROCESS);
             return result;
          }
       }
@@ -259,6 +319,7 @@ public class Contexts
          if (result!=null)
          {
              if ( log.isTraceEnabled() ) log.trace("found in application context: " + name);
+            if (cache!=null) cache.put(name, ScopeType.APPLICATION);
             return result;
          }
       }
@@ -267,12 +328,158 @@ public class Contexts
       
    }
    
+   /**
+    * Is the variable set in a shared context which takes precedence
+    * over the given scope? The session, business process and 
+    * application contexts may be changed by other threads, which 
+    * do not drop the lookup cache of this thread.
+    */
+   private static boolean isSetInSharedContext(String name, ScopeType scope)
+   {
+      if ( scope==ScopeType.BUSINESS_PROCESS || scope==ScopeType.APPLICATION )
+      {
+         Context session = sessionContext.get();
+         if ( session!=null && session.get(name)!=null )
+         {
+            return true;
+         }
+      }
+      if ( scope==ScopeType.APPLICATION )
+      {
+         Context businessProcess = businessProcessContext.get();
+         if ( businessProcess!=null && businessProcess.get(name)!=null )
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+   
+   private static Context getCachedContext(ScopeType scope)
+   {
+      switch (scope)
+      {
+         case EVENT: return eventContext.get();
+         case PAGE: return pageContext.get();
+         case CONVERSATION: return conversationContext.get();
+         case SESSION: return sessionContext.get();
+         case BUSINESS_PROCESS: return businessProcessContext.get();
+         case APPLICATION: return applicationContext.get();
+         default: return null;
+      }
+   }
+   
+   /**
+    * Is the per-request cache of the scope in which each variable
+    * was found by lookupInStatefulContexts() enabled for the 
+    * application of the current thread?
+    * 
+    * @see Init#setContextLookupCache(boolean)
+    */
+   public static boolean isLookupCacheEnabled()
+   {
+      return LookupCache.instance().isEnabled();
+   }
+   
+   /**
+    * Discard the lookup cache of the current thread. Must be called
+    * whenever the variables visible in a context change other than
+    * by a call to Context.set() or Context.remove(), for example
+    * when the current conversation is switched.
+    */
+   public static void resetLookupCache()
+   {
+      LookupCache.reset();
+   }
+   
+   /**
+    * The number of lookups that were resolved by a single probe
+    * of the cached scope, for requests that have completed
+    */
+   public static long getLookupCacheHits()
+   {
+      return LookupCache.getHits();
+   }
+   
+   /**
+    * The number of lookups that needed a walk over the stateful
+    * contexts, for requests that have completed
+    */
+   public static long getLookupCacheMisses()
+   {
+      return LookupCache.getMisses();
+   }
+   
+   /**
+    * Is the per-request memo of the values to which EL identifiers
+    * resolved enabled for the application of the current thread?
+    * 
+    * @see Init#setElResolutionMemo(boolean)
+    */
+   public static boolean isResolutionMemoEnabled()
+   {
+      return LookupCache.instance().isMemoEnabled();
+   }
+   
+   /**
+    * The value an EL identifier resolved to earlier in the current
+    * request, or null. Always null while a method context is active, 
+    * since the method context may hide the memoized value.
+    */
+   public static Object getMemoizedResolution(String identifier)
+   {
+      if ( isMethodContextActive() )
+      {
+         return null;
+      }
+      LookupCache cache = LookupCache.instance();
+      return cache.isMemoEnabled() ? cache.getMemoized(identifier) : null;
+   }
+   
+   /**
+    * Remember, until the end of the request or until a variable with
+    * the same unqualified name is set or removed, the value to which 
+    * an EL identifier resolved. The value must be the instance of a 
+    * component which is kept in a context private to the request,
+    * that is the event, page or conversation context, since other
+    * threads do not drop the memo of this thread.
+    */
+   public static void memoizeResolution(String identifier, Object value)
+   {
+      if ( !isMethodContextActive() )
+      {
+         LookupCache cache = LookupCache.instance();
+         if ( cache.isMemoEnabled() )
+         {
+            cache.memoize(identifier, value);
+         }
+      }
+   }
+   
+   /**
+    * The number of EL identifiers resolved from the memo, for 
+    * requests that have completed
+    */
+   public static long getResolutionMemoHits()
+   {
+      return LookupCache.getMemoHits();
+   }
+   
+   /**
+    * The number of EL identifiers which were not in the memo, for 
+    * requests that have completed
+    */
+   public static long getResolutionMemoMisses()
+   {
+      return LookupCache.getMemoMisses();
+   }
+   
    /**
     * Destroy all components in the given context
     */
    static void destroy(Context context)
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preDestroyContext." + context.getType().toString());
+      ContextEvents.PRE_DESTROY_CONTEXT.raiseEvent( context.getType().toString() );
       
       Lifecycle.startDestroying();
       try
@@ -286,7 +493,7 @@ public class Contexts
                Object object = context.get(name);
                if (object!=null) //in a portal environment, this is possible
                {
-                  if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preDestroy." + name);
+                  ContextEvents.PRE_DESTROY.raiseEvent(name);
                   component.destroy(object);
                }
             }
@@ -297,7 +504,7 @@ public class Contexts
          Lifecycle.stopDestroying();
       }
       
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postDestroyContext." + context.getType().toString());
+      ContextEvents.POST_DESTROY_CONTEXT.raiseEvent( context.getType().toString() );
    }
    
    /**
@@ -351,6 +558,41 @@ public class Contexts
    {
       return attribute instanceof Mutable && ( (Mutable) attribute ).clearDirty();
    }
+   
+   /**
+    * Record the number of attributes of a context that were 
+    * written to the underlying store when it was flushed, and 
+    * the number that were left untouched.
+    */
+   static void attributesFlushed(Context context, int flushed, int skipped)
+   {
+      flushedAttributes.addAndGet(flushed);
+      skippedAttributes.addAndGet(skipped);
+      if ( log.isDebugEnabled() )
+      {
+         log.debug("flushed " + context + ": " + flushed + " attributes written, " + skipped + " skipped");
+      }
+   }
+   
+   /**
+    * The total number of context attributes that were written to
+    * the session, because they were added or changed, when the 
+    * session and conversation contexts were flushed
+    */
+   public static long getFlushedAttributeCount()
+   {
+      return flushedAttributes.get();
+   }
+   
+   /**
+    * The total number of context attributes that did not need
+    * to be written to the session when the session and 
+    * conversation contexts were flushed
+    */
+   public static long getSkippedAttributeCount()
+   {
+      return skippedAttributes.get();
+   }
 
    /**
     * At the end of a request, flush all contexts to their underlying
@@ -35,6 +35,8 @@ public class FacesLifecycle
    public static void setPhaseId(PhaseId phase)
    {
       phaseId.set(phase);
+      // the page context exposes a different map in each phase
+      LookupCache.reset();
    }
    
    public static PhaseId getPhaseId()
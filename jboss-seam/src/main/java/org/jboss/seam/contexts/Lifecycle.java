@@ -6,9 +6,11 @@
  */
 package org.jboss.seam.contexts;
 
+import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Set;
 
+import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.core.ConversationEntries;
 import org.jboss.seam.core.Manager;
@@ -151,6 +153,20 @@ public class Lifecycle
       return result;
    }
 
+   /**
+    * Begin a call to a component method, binding the component
+    * instance, the method and its parameters to the new method
+    * context
+    * 
+    * @return the method context of the caller
+    */
+   public static Context beginMethod(Component component, Object target, Method method, Object[] parameters)
+   {
+      Context result = Contexts.methodContext.get();
+      Contexts.methodContext.set( new MethodContext(component, target, method, parameters) );
+      return result;
+   }
+
    public static void endMethod(Context context)
    {
       Contexts.methodContext.set(context);
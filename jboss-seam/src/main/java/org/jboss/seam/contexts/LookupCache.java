@@ -0,0 +1,198 @@
+package org.jboss.seam.contexts;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.core.Init;
+
+/**
+ * Remembers, for the current thread, the scope in which each
+ * context variable was last found by
+ * {@link Contexts#lookupInStatefulContexts(String)}, so that
+ * repeated resolutions of the same name cost a single probe
+ * instead of a walk over all the stateful contexts.
+ *
+ * An entry is dropped whenever the variable is set or removed
+ * in any context by the current thread, and the whole cache is
+ * dropped whenever a context is bound to or unbound from the
+ * thread, the JSF phase changes or the current conversation is
+ * switched. Only successful lookups are remembered, and a
+ * remembered scope is always verified by reading the variable
+ * from it. Since the session, business process and application
+ * contexts are shared with other threads, which do not drop the
+ * entries of this thread, a hit in a lower-precedence scope is
+ * also verified by probing those shared contexts which take
+ * precedence over it. Variables written directly to the
+ * underlying servlet request attributes, bypassing the Seam
+ * contexts, may however be shadowed by an entry for a
+ * lower-precedence scope until the end of the request. For this
+ * reason the cache is disabled by default.
+ *
+ * The cache also holds the resolution memo, which remembers the
+ * values to which EL identifiers were resolved by SeamELResolver.
+ * The memo is dropped along with the cache, and the entry for an
+ * identifier is dropped whenever a variable with that unqualified
+ * name is set or removed. Only components kept in the contexts
+ * private to a request are memoized. The memo is also disabled
+ * by default.
+ *
+ * Both are enabled per application, by the Init component of the
+ * application which is bound to the thread when the cache is
+ * created.
+ *
+ * Hit and miss counts are accumulated per thread, and added to
+ * the global counters whenever the cache is dropped.
+ */
+class LookupCache
+{
+
+   private static final AtomicLong hits = new AtomicLong();
+   private static final AtomicLong misses = new AtomicLong();
+   private static final AtomicLong memoHits = new AtomicLong();
+   private static final AtomicLong memoMisses = new AtomicLong();
+
+   private static final ThreadLocal<LookupCache> cache = new ThreadLocal<LookupCache>();
+
+   private final boolean enabled;
+   private final boolean memoEnabled;
+   private final Map<String, ScopeType> scopes = new HashMap<String, ScopeType>();
+   private Map<String, Object> memo;
+   private long localHits;
+   private long localMisses;
+   private long localMemoHits;
+   private long localMemoMisses;
+
+   private LookupCache(Init init)
+   {
+      enabled = init!=null && init.isContextLookupCache();
+      memoEnabled = init!=null && init.isElResolutionMemo();
+   }
+
+   boolean isEnabled()
+   {
+      return enabled;
+   }
+
+   boolean isMemoEnabled()
+   {
+      return memoEnabled;
+   }
+
+   static long getMemoHits()
+   {
+      return memoHits.get();
+   }
+
+   static long getMemoMisses()
+   {
+      return memoMisses.get();
+   }
+
+   static long getHits()
+   {
+      return hits.get();
+   }
+
+   static long getMisses()
+   {
+      return misses.get();
+   }
+
+   /**
+    * The cache for the current thread, created on demand
+    */
+   static LookupCache instance()
+   {
+      LookupCache result = cache.get();
+      if (result==null)
+      {
+         Context application = Contexts.applicationContext.get();
+         result = new LookupCache( application==null ? null : (Init) application.get(Init.class) );
+         cache.set(result);
+      }
+      return result;
+   }
+
+   /**
+    * Forget the scope of a variable that is being set or removed
+    */
+   static void invalidate(String name)
+   {
+      LookupCache current = cache.get();
+      if (current!=null)
+      {
+         current.scopes.remove(name);
+         if (current.memo!=null)
+         {
+            //the identifier may resolve to a qualified name
+            current.memo.remove( name.substring( name.lastIndexOf('.')+1 ) );
+         }
+      }
+   }
+
+   /**
+    * Forget everything that was cached by the current thread
+    */
+   static void reset()
+   {
+      LookupCache current = cache.get();
+      if (current!=null)
+      {
+         cache.set(null);
+         hits.addAndGet(current.localHits);
+         misses.addAndGet(current.localMisses);
+         memoHits.addAndGet(current.localMemoHits);
+         memoMisses.addAndGet(current.localMemoMisses);
+      }
+   }
+
+   ScopeType get(String name)
+   {
+      return scopes.get(name);
+   }
+
+   void put(String name, ScopeType scope)
+   {
+      scopes.put(name, scope);
+   }
+
+   /**
+    * The remembered value of an EL identifier, counting a
+    * hit or a miss
+    */
+   Object getMemoized(String identifier)
+   {
+      Object result = memo==null ? null : memo.get(identifier);
+      if (result==null)
+      {
+         localMemoMisses++;
+      }
+      else
+      {
+         localMemoHits++;
+      }
+      return result;
+   }
+
+   void memoize(String identifier, Object value)
+   {
+      if (memo==null)
+      {
+         memo = new HashMap<String, Object>();
+      }
+      memo.put(identifier, value);
+   }
+
+   void hit()
+   {
+      localHits++;
+   }
+
+   void miss()
+   {
+      localMisses++;
+   }
+
+}
@@ -0,0 +1,139 @@
+package org.jboss.seam.contexts;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.ScopeType;
+
+/**
+ * The context of a call to a component method. The variables
+ * bound by Seam for every call (the component instance, under
+ * its component name and as org.jboss.seam.this, and
+ * org.jboss.seam.method, org.jboss.seam.parameters and
+ * org.jboss.seam.component) are kept in fields, and a map is
+ * only created if some other variable is set.
+ *
+ * Unlike other variables, the variables bound by Seam do not
+ * raise preSetVariable and postSetVariable events.
+ */
+class MethodContext implements Context
+{
+   static final String THIS = "org.jboss.seam.this";
+   static final String METHOD = "org.jboss.seam.method";
+   static final String PARAMETERS = "org.jboss.seam.parameters";
+   static final String COMPONENT = "org.jboss.seam.component";
+
+   private final String componentName;
+   private Object instance;
+   private Object target;
+   private Method method;
+   private Object[] parameters;
+   private Component component;
+   private Map<String, Object> variables;
+
+   MethodContext(Component component, Object target, Method method, Object[] parameters)
+   {
+      this.componentName = component.getName();
+      this.instance = target;
+      this.target = target;
+      this.method = method;
+      this.parameters = parameters;
+      this.component = component;
+   }
+
+   public ScopeType getType()
+   {
+      return ScopeType.METHOD;
+   }
+
+   public Object get(Class clazz)
+   {
+      return get( Component.getComponentName(clazz) );
+   }
+
+   public Object get(String name)
+   {
+      if ( name.equals(componentName) ) return instance;
+      if ( name.startsWith("org.jboss.seam.") )
+      {
+         if ( THIS.equals(name) ) return target;
+         if ( METHOD.equals(name) ) return method;
+         if ( PARAMETERS.equals(name) ) return parameters;
+         if ( COMPONENT.equals(name) ) return component;
+      }
+      return variables==null ? null : variables.get(name);
+   }
+
+   public String[] getNames()
+   {
+      List<String> names = new ArrayList<String>();
+      if (instance!=null) names.add(componentName);
+      if (target!=null) names.add(THIS);
+      if (method!=null) names.add(METHOD);
+      if (parameters!=null) names.add(PARAMETERS);
+      if (component!=null) names.add(COMPONENT);
+      if (variables!=null) names.addAll( variables.keySet() );
+      return names.toArray( new String[names.size()] );
+   }
+
+   public boolean isSet(String name)
+   {
+      return isFixed(name) ? get(name)!=null : variables!=null && variables.containsKey(name);
+   }
+
+   public void remove(String name)
+   {
+      ContextEvents.PRE_REMOVE_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
+      if ( !setFixed(name, null) && variables!=null )
+      {
+         variables.remove(name);
+      }
+      ContextEvents.POST_REMOVE_VARIABLE.raiseEvent(name);
+   }
+
+   public void set(String name, Object value)
+   {
+      ContextEvents.PRE_SET_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
+      if ( !setFixed(name, value) )
+      {
+         if (variables==null)
+         {
+            variables = new HashMap<String, Object>();
+         }
+         variables.put(name, value);
+      }
+      ContextEvents.POST_SET_VARIABLE.raiseEvent(name);
+   }
+
+   private boolean isFixed(String name)
+   {
+      return name.equals(componentName) || THIS.equals(name) || METHOD.equals(name) ||
+            PARAMETERS.equals(name) || COMPONENT.equals(name);
+   }
+
+   private boolean setFixed(String name, Object value)
+   {
+      if ( name.equals(componentName) ) instance = value;
+      else if ( THIS.equals(name) ) target = value;
+      else if ( METHOD.equals(name) ) method = (Method) value;
+      else if ( PARAMETERS.equals(name) ) parameters = (Object[]) value;
+      else if ( COMPONENT.equals(name) ) component = (Component) value;
+      else return false;
+      return true;
+   }
+
+   public void flush() {}
+
+   @Override
+   public String toString()
+   {
+      return "MethodContext(" + componentName + '.' + (method==null ? null : method.getName()) + ')';
+   }
+
+}
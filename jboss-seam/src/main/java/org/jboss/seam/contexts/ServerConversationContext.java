@@ -6,6 +6,7 @@
  */
 package org.jboss.seam.contexts;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -13,10 +14,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
+
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
-import org.jboss.seam.core.Events;
 import org.jboss.seam.core.Manager;
 import org.jboss.seam.persistence.PersistenceContexts;
 
@@ -31,11 +34,18 @@ import org.jboss.seam.persistence.PersistenceContexts;
 public class ServerConversationContext implements Context 
 {
 
+   private static final String LEGACY_PREFIX = ScopeType.CONVERSATION.getPrefix() + '#';
+   private static final String ATTRIBUTE_PREFIX = ScopeType.CONVERSATION.getPrefix() + '%';
+   private static final String MIGRATED = ScopeType.CONVERSATION.getPrefix() + "$migrated";
+
    private final Map<String, Object> session;
    private final Map<String, Object> additions = new HashMap<String, Object>();
    private final Set<String> removals = new HashSet<String>();
    private final String id;
    private final List<String> idStack;
+   private boolean migrated;
+   private int flushedAttributes;
+   private int skippedAttributes;
    
    private List<String> getIdStack()
    {
@@ -52,19 +62,73 @@ public class ServerConversationContext implements Context
       return ScopeType.CONVERSATION;
    }
 
-   private String getKey(String name)
+   /**
+    * The name of the session attribute that holds the variables 
+    * of the given conversation, as a Map.
+    */
+   public static String getSessionAttributeName(String conversationId)
    {
-      return getPrefix( getId() ) + name;
+      return ATTRIBUTE_PREFIX + conversationId;
    }
-
-   private String getKey(String name, String id)
+   
+   private Map<String, Object> getAttributes(String id)
    {
-      return getPrefix(id) + name;
+      migrate();
+      return (Map<String, Object>) session.get( getSessionAttributeName(id) );
    }
-
-   private String getPrefix(String id)
+   
+   private Object getFromSession(String name, String id)
    {
-      return ScopeType.CONVERSATION.getPrefix() + '#' + id + '$';
+      Map<String, Object> attributes = getAttributes(id);
+      return attributes==null ? null : attributes.get(name);
+   }
+   
+   /**
+    * Earlier versions of Seam kept each conversation variable
+    * in a session attribute of its own, named 
+    * CONVERSATION#id$name. Move any such attributes into the Map 
+    * of their conversation, once per session.
+    */
+   private void migrate()
+   {
+      if ( migrated || session.get(MIGRATED)!=null ) 
+      {
+         migrated = true;
+         return;
+      }
+      migrated = true;
+      
+      Set<String> keys = session.keySet();
+      if ( keys.isEmpty() )
+      {
+         //don't create a session just for the marker
+         return;
+      }
+      
+      Map<String, Map<String, Object>> conversations = new HashMap<String, Map<String, Object>>();
+      for ( String key: new ArrayList<String>(keys) )
+      {
+         int loc = key.indexOf('$', LEGACY_PREFIX.length());
+         if ( key.startsWith(LEGACY_PREFIX) && loc>0 )
+         {
+            String id = key.substring( LEGACY_PREFIX.length(), loc );
+            Map<String, Object> attributes = conversations.get(id);
+            if (attributes==null)
+            {
+               attributes = (Map<String, Object>) session.get( getSessionAttributeName(id) );
+               attributes = attributes==null ? 
+                     new Variables() : new Variables(attributes);
+               conversations.put(id, attributes);
+            }
+            attributes.put( key.substring(loc+1), session.get(key) );
+            session.remove(key);
+         }
+      }
+      for ( Map.Entry<String, Map<String, Object>> entry: conversations.entrySet() )
+      {
+         session.put( getSessionAttributeName( entry.getKey() ), entry.getValue() );
+      }
+      session.put(MIGRATED, true);
    }
 
    public ServerConversationContext(Map<String, Object> session)
@@ -100,14 +164,14 @@ public class ServerConversationContext implements Context
             List<String> stack = getIdStack();
             if (stack==null)
             {
-               return unwrapEntityBean( session.get( getKey(name) ) );
+               return unwrapEntityBean( getFromSession( name, getId() ) );
             }
             else
             {
                for ( int i=0; i<stack.size(); i++ )
                {
                   String id = stack.get(i);
-                  result = session.get( getKey(name, id) );
+                  result = getFromSession(name, id);
 
                   if (result != null) 
                   {
@@ -147,7 +211,8 @@ public class ServerConversationContext implements Context
 
    public void set(String name, Object value) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preSetVariable." + name);
+      ContextEvents.PRE_SET_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
       if (value==null)
       {
          //yes, we need this
@@ -174,7 +239,7 @@ public class ServerConversationContext implements Context
          }
          additions.put(name, value);
       }
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postSetVariable." + name);
+      ContextEvents.POST_SET_VARIABLE.raiseEvent(name);
 	}
 
 	public boolean isSet(String name) 
@@ -184,10 +249,11 @@ public class ServerConversationContext implements Context
    
 	public void remove(String name) 
    {
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.preRemoveVariable." + name);
+      ContextEvents.PRE_REMOVE_VARIABLE.raiseEvent(name);
+      LookupCache.invalidate(name);
       additions.remove(name);
       removals.add(name);
-      if ( Events.exists() ) Events.instance().raiseEvent("org.jboss.seam.postRemoveVariable." + name);
+      ContextEvents.POST_REMOVE_VARIABLE.raiseEvent(name);
 	}
 
    public String[] getNames() 
@@ -198,46 +264,22 @@ public class ServerConversationContext implements Context
    }
 
    private Set<String> getNamesFromSession() 
-   {       
-       HashSet<String> results = new HashSet<String>();
-       
-       String prefix = getPrefix(getId());
-       for (String name: session.keySet()) {
-           if (name.startsWith(prefix)) {
-               name = name.substring(prefix.length());
-               if (!removals.contains(name)) {
-                   results.add(name);
-               }
-           }
-       }
-
-       return results;
-   }
-   
-   private Set<String> getNamesForAllConversationsFromSession() 
-   {       
-       Set<String> results = new HashSet<String>();
-       
-       List<String> ids = Manager.instance().getCurrentConversationIdStack();
-       
-       if (ids != null) {
-           for (String conversationId: ids) {
-               String prefix = getPrefix(conversationId);
-               for (String name: session.keySet()) {
-                   if (name.startsWith(prefix)) {
-                       String shortName = name.substring(prefix.length());
-                       if (!removals.contains(shortName)) {
-                           results.add(name);
-                       }
-                   }
-               }
-           }
-       }
-
-       return results;
+   {
+      HashSet<String> results = new HashSet<String>();
+      Map<String, Object> attributes = getAttributes( getId() );
+      if (attributes!=null)
+      {
+         for ( String name: attributes.keySet() )
+         {
+            if ( !removals.contains(name) )
+            {
+               results.add(name);
+            }
+         }
+      }
+      return results;
    }
    
-
    public Object get(Class clazz)
    {
       return get( Component.getComponentName(clazz) );
@@ -247,16 +289,28 @@ public class ServerConversationContext implements Context
    {
       additions.clear();
       removals.addAll( getNamesFromSession() );
+      LookupCache.reset();
    }
    
    public void unflush()
    {
-      for ( String key: getNamesForAllConversationsFromSession() )
+      List<String> ids = Manager.instance().getCurrentConversationIdStack();
+      if (ids!=null)
       {
-         Object attribute = session.get(key);
-         if ( attribute!=null && attribute instanceof Wrapper ) 
+         for (String conversationId: ids)
          {
-            ( (Wrapper) attribute ).activate();
+            Map<String, Object> attributes = getAttributes(conversationId);
+            if (attributes!=null)
+            {
+               for ( Map.Entry<String, Object> entry: attributes.entrySet() )
+               {
+                  Object attribute = entry.getValue();
+                  if ( attribute instanceof Wrapper && !removals.contains( entry.getKey() ) ) 
+                  {
+                     ( (Wrapper) attribute ).activate();
+                  }
+               }
+            }
          }
       }
    }
@@ -267,61 +321,119 @@ public class ServerConversationContext implements Context
     * attributes if it is a temporary conversation. This work
     * may only be done at the end of the request, since we
     * don't know for sure the conversation id until then.
+    * 
+    * Only the session attributes of the conversations in the
+    * current conversation stack are touched. The Map holding
+    * the variables of a conversation is never modified once
+    * it is in the session, instead a modified copy replaces 
+    * it, so that concurrent requests never see it half-updated.
     */
    public void flush()
    {      
+      LookupCache.reset();
       boolean longRunning = !isCurrent() || Manager.instance().isLongRunningConversation();  
+      String currentId = getId();
           
       if ( longRunning )
       {
           //force update for dirty mutable objects
-          for (String key: getNamesForAllConversationsFromSession())  {
-              Object attribute = session.get(key);
-              
-              if (attribute!=null) {
-                  if (passivate(attribute) || isAttributeDirty(attribute)) {
-                      session.put(key, attribute);
+          List<String> ids = Manager.instance().getCurrentConversationIdStack();
+          if (ids != null) {
+              for (String conversationId: ids) {
+                  if ( !conversationId.equals(currentId) || ( additions.isEmpty() && removals.isEmpty() ) ) {
+                      Map<String, Object> attributes = getAttributes(conversationId);
+                      if ( attributes!=null && isDirty(attributes) ) {
+                          session.put( getSessionAttributeName(conversationId), attributes );
+                      }
                   }
               }
           }
-    
-          //remove removed objects
-          for (String name: removals) {
-              session.remove(getKey(name));
-          }
-          removals.clear();
-
-          // Nothing to do if there is no addition
-          if (!additions.isEmpty())
+          
+          // Nothing more to do if there is no addition or removal
+          if ( !additions.isEmpty() || !removals.isEmpty() )
           {
-             // TODO this is a hack! We should find a more elegant way of handling
-             // new objects being added to additions during the following for-loop
-             PersistenceContexts.instance();
+             Map<String, Object> attributes = getAttributes(currentId);
+             attributes = attributes==null ? 
+                   new Variables() : new Variables(attributes);
+             
+             //remove removed objects
+             for (String name: removals) {
+                 attributes.remove(name);
+             }
+             removals.clear();
+             
+             //passivate the dirty objects which are already there
+             isDirty(attributes);
+             
+             if (!additions.isEmpty())
+             {
+                // TODO this is a hack! We should find a more elegant way of handling
+                // new objects being added to additions during the following for-loop
+                PersistenceContexts.instance();
+                
+                //add new objects
+                for (Map.Entry<String, Object> entry: additions.entrySet())  {
+                    Object attribute = entry.getValue();
+                    
+                    passivate(attribute); 
+                    attributes.put(entry.getKey(), attribute);
+                }
+                flushedAttributes += additions.size();
+                additions.clear();
+             }
              
-             //add new objects
-             for (Map.Entry<String, Object> entry: additions.entrySet())  {
-                 Object attribute = entry.getValue();
-                 
-                 passivate(attribute); 
-                 session.put(getKey(entry.getKey()), attribute);
+             if ( attributes.isEmpty() )
+             {
+                session.remove( getSessionAttributeName(currentId) );
+             }
+             else
+             {
+                session.put( getSessionAttributeName(currentId), attributes );
+                if ( session.get(MIGRATED)==null ) session.put(MIGRATED, true);
              }
-             additions.clear();
           }
+          
+          Contexts.attributesFlushed(this, flushedAttributes, skippedAttributes);
+          flushedAttributes = 0;
+          skippedAttributes = 0;
       }
       else
       {
          //TODO: for a pure temporary conversation, this is unnecessary, optimize it
-         for (String name: getNamesFromSession()) {
-            session.remove( getKey(name) );
-         }
-         
-         // remove removed objects
-         for (String name: removals) {
-             session.remove(getKey(name));
+         if ( getAttributes(currentId)!=null )
+         {
+            session.remove( getSessionAttributeName(currentId) );
          }
          removals.clear();
       }
    }
+   
+   /**
+    * Passivate the given attributes, and determine if any of them
+    * needs to be replicated again
+    */
+   private boolean isDirty(Map<String, Object> attributes)
+   {
+      boolean dirty = false;
+      for ( Map.Entry<String, Object> entry: attributes.entrySet() )
+      {
+         Object attribute = entry.getValue();
+         if ( attribute!=null && !removals.contains( entry.getKey() ) )
+         {
+            //always passivate, even once we know the answer
+            if ( passivate(attribute) | isAttributeDirty(attribute) )
+            {
+               dirty = true;
+               flushedAttributes++;
+            }
+            else
+            {
+               skippedAttributes++;
+            }
+         }
+      }
+      return dirty;
+   }
 
     private boolean passivate(Object attribute) {
         if (attribute instanceof Wrapper) {
@@ -345,5 +457,46 @@ public class ServerConversationContext implements Context
    {
       return "ConversationContext(" + getId() + ")";
    }
+   
+   /**
+    * The variables of a conversation. Since the container only
+    * notifies the session attributes themselves of passivation
+    * and activation, the events are passed on to the variables 
+    * which listen for them, such as managed persistence contexts
+    * and JavaBean components.
+    */
+   static class Variables extends HashMap<String, Object> implements HttpSessionActivationListener
+   {
+      private static final long serialVersionUID = 2938527401376512647L;
+
+      Variables() {}
+      
+      Variables(Map<String, Object> variables)
+      {
+         super(variables);
+      }
+      
+      public void sessionWillPassivate(HttpSessionEvent event)
+      {
+         for ( Object value: values() )
+         {
+            if (value instanceof HttpSessionActivationListener)
+            {
+               ( (HttpSessionActivationListener) value ).sessionWillPassivate(event);
+            }
+         }
+      }
+      
+      public void sessionDidActivate(HttpSessionEvent event)
+      {
+         for ( Object value: values() )
+         {
+            if (value instanceof HttpSessionActivationListener)
+            {
+               ( (HttpSessionActivationListener) value ).sessionDidActivate(event);
+            }
+         }
+      }
+   }
 
 }
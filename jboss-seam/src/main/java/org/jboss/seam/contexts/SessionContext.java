@@ -44,6 +44,8 @@ public class SessionContext extends BasicContext
    @Override
    public void flush() 
    {
+      int flushed = 0;
+      int skipped = 0;
       for ( String name: getNames() )
       {
          Object attribute = get(name);
@@ -52,8 +54,14 @@ public class SessionContext extends BasicContext
          if ( dirty )
          {
             set(name, attribute);
+            flushed++;
+         }
+         else
+         {
+            skipped++;
          }
       }      
+      Contexts.attributesFlushed(this, flushed, skipped);
    }
   
    @Override
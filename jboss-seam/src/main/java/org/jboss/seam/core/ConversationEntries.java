@@ -2,13 +2,18 @@ package org.jboss.seam.core;
 
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
@@ -22,6 +27,10 @@ import org.jboss.seam.contexts.Contexts;
  * Manages a map of conversation id to ConversationEntry 
  * in the session context.
  * 
+ * The map may be read by concurrent requests without locking.
+ * Changes to the map are serialized, and mark the component
+ * dirty, so that the session is replicated.
+ * 
  * @author Gavin King
  */
 @Name("org.jboss.seam.core.conversationEntries")
@@ -31,19 +40,29 @@ import org.jboss.seam.contexts.Contexts;
 public class ConversationEntries extends AbstractMutable implements Serializable 
 {
    private static final long serialVersionUID = 7996835952419813634L;
-   private Map<String, ConversationEntry> conversationIdEntryMap = new HashMap<String, ConversationEntry>();
+   private Map<String, ConversationEntry> conversationIdEntryMap = new ConcurrentHashMap<String, ConversationEntry>();
+   
+   // indexes of the conversations by the time at which they time out, 
+   // rebuilt after deserialization
+   private transient Map<ConversationEntry, TimeoutKey> timeoutKeys;
+   private transient TreeSet<TimeoutKey> defaultTimeoutIndex;
+   private transient TreeSet<TimeoutKey> explicitTimeoutIndex;
    
-   public synchronized Collection<ConversationEntry> getConversationEntries()
+   /**
+    * A live, read-only view of the conversation entries, which 
+    * may be iterated while entries are being added or removed.
+    */
+   public Collection<ConversationEntry> getConversationEntries()
    {
       return Collections.unmodifiableCollection( conversationIdEntryMap.values() );
    }
    
-   public synchronized int size()
+   public int size()
    {
       return conversationIdEntryMap.size();
    }
    
-   public synchronized Set<String> getConversationIds()
+   public Set<String> getConversationIds()
    {
       return Collections.unmodifiableSet( conversationIdEntryMap.keySet() );
    }
@@ -51,12 +70,14 @@ public class ConversationEntries extends AbstractMutable implements Serializable
    public synchronized ConversationEntry createConversationEntry(String id, List<String> stack)
    {
       ConversationEntry entry = new ConversationEntry(id, stack, this);
-      conversationIdEntryMap.put(id, entry);
+      ConversationEntry replaced = conversationIdEntryMap.put(id, entry);
+      if (replaced!=null) removeFromTimeoutIndex(replaced);
+      updateTimeoutIndex(entry);
       setDirty();
       return entry;
    }
    
-   public synchronized ConversationEntry getConversationEntry(String id)
+   public ConversationEntry getConversationEntry(String id)
    {
       return conversationIdEntryMap.get(id);
    }
@@ -64,7 +85,11 @@ public class ConversationEntries extends AbstractMutable implements Serializable
    public synchronized ConversationEntry removeConversationEntry(String id)
    {
       ConversationEntry entry = conversationIdEntryMap.remove(id);
-      if ( entry!=null ) setDirty();
+      if ( entry!=null ) 
+      {
+         removeFromTimeoutIndex(entry);
+         setDirty();
+      }
       return entry;
    }
    
@@ -77,14 +102,135 @@ public class ConversationEntries extends AbstractMutable implements Serializable
       }
       else
       {
+         removeFromTimeoutIndex(entry);
          entry.setId(newId);
          entry.getConversationIdStack().set(0, newId);
          conversationIdEntryMap.put(newId, entry);
+         updateTimeoutIndex(entry);
          setDirty();
          return entry;
       }
    }
    
+   /**
+    * Get the conversations which have not been accessed for longer
+    * than their timeout. Only the conversations which have timed out
+    * are examined, not all the conversations in the session.
+    * 
+    * @param currentTime the current time, in milliseconds
+    * @param defaultTimeout the timeout, in milliseconds, of conversations
+    *        which do not specify their own
+    */
+   public synchronized List<ConversationEntry> getTimedOutConversationEntries(long currentTime, int defaultTimeout)
+   {
+      if (timeoutKeys==null)
+      {
+         buildTimeoutIndex();
+      }
+      List<ConversationEntry> result = new ArrayList<ConversationEntry>();
+      for (TimeoutKey key: defaultTimeoutIndex)
+      {
+         if ( currentTime - key.time <= defaultTimeout ) break;
+         result.add(key.entry);
+      }
+      for (TimeoutKey key: explicitTimeoutIndex)
+      {
+         if ( currentTime <= key.time ) break;
+         result.add(key.entry);
+      }
+      return result;
+   }
+   
+   /**
+    * Called when the last request time or the timeout of
+    * a conversation changes
+    */
+   synchronized void updateTimeoutIndex(ConversationEntry entry)
+   {
+      if (timeoutKeys==null)
+      {
+         buildTimeoutIndex();
+      }
+      else if ( conversationIdEntryMap.get( entry.getId() )==entry )
+      {
+         removeFromTimeoutIndex(entry);
+         addToTimeoutIndex(entry);
+      }
+   }
+   
+   private void removeFromTimeoutIndex(ConversationEntry entry)
+   {
+      if (timeoutKeys!=null)
+      {
+         TimeoutKey key = timeoutKeys.remove(entry);
+         if (key!=null)
+         {
+            ( key.explicitTimeout ? explicitTimeoutIndex : defaultTimeoutIndex ).remove(key);
+         }
+      }
+   }
+   
+   private void addToTimeoutIndex(ConversationEntry entry)
+   {
+      TimeoutKey key = new TimeoutKey(entry);
+      timeoutKeys.put(entry, key);
+      ( key.explicitTimeout ? explicitTimeoutIndex : defaultTimeoutIndex ).add(key);
+   }
+   
+   private void buildTimeoutIndex()
+   {
+      timeoutKeys = new IdentityHashMap<ConversationEntry, TimeoutKey>();
+      defaultTimeoutIndex = new TreeSet<TimeoutKey>();
+      explicitTimeoutIndex = new TreeSet<TimeoutKey>();
+      for ( ConversationEntry entry: conversationIdEntryMap.values() )
+      {
+         addToTimeoutIndex(entry);
+      }
+   }
+   
+   /**
+    * The position of a conversation in a timeout index. Conversations
+    * with the default timeout are ordered by the time of their last
+    * request, the others by the time at which they time out.
+    */
+   private static final class TimeoutKey implements Comparable<TimeoutKey>
+   {
+      private final ConversationEntry entry;
+      private final String id;
+      private final long time;
+      private final boolean explicitTimeout;
+      
+      TimeoutKey(ConversationEntry entry)
+      {
+         this.entry = entry;
+         this.id = entry.getId();
+         Integer timeout = entry.getExplicitTimeout();
+         explicitTimeout = timeout!=null;
+         time = explicitTimeout ? 
+               entry.getLastRequestTime() + timeout : 
+               entry.getLastRequestTime();
+      }
+      
+      public int compareTo(TimeoutKey other)
+      {
+         if (time!=other.time)
+         {
+            return time<other.time ? -1 : 1;
+         }
+         return id.compareTo(other.id);
+      }
+   }
+   
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+   {
+      in.defaultReadObject();
+      if ( !(conversationIdEntryMap instanceof ConcurrentHashMap) )
+      {
+         //serialized by an earlier version
+         conversationIdEntryMap = new ConcurrentHashMap<String, ConversationEntry>(conversationIdEntryMap);
+      }
+   }
+   
    public static ConversationEntries instance()
    {
       if ( !Contexts.isSessionContextActive() )
@@ -3,13 +3,14 @@ package org.jboss.seam.core;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.jboss.seam.Component;
-import org.jboss.seam.ScopeType;
 import org.jboss.seam.contexts.Context;
 import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.contexts.ServerConversationContext;
 
 /**
  * Metadata about an active conversation. Also used
@@ -22,7 +23,7 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
 {
    private static final long serialVersionUID = 3624635335271963568L;
    
-   private long lastRequestTime;
+   private volatile long lastRequestTime;
    private String description;
    private String id;
    private Date startDatetime;
@@ -74,7 +75,7 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
       this.description = description;
    }
    
-   public synchronized long getLastRequestTime() 
+   public long getLastRequestTime() 
    {
       return lastRequestTime;
    }
@@ -84,6 +85,7 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
       entries.setDirty();
       lastRequestTime = System.currentTimeMillis();
       lastDatetime = new Date();
+      entries.updateTimeoutIndex(this);
    }
    
    public String getId() 
@@ -180,6 +182,16 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
    {
       entries.setDirty(this.timeout, timeout);
       this.timeout = conversationTimeout;
+      entries.updateTimeoutIndex(this);
+   }
+   
+   /**
+    * The timeout of this conversation, or null if it has
+    * the default timeout
+    */
+   Integer getExplicitTimeout()
+   {
+      return timeout;
    }
    
    public Integer getConcurrentRequestTimeout()
@@ -277,8 +289,8 @@ public final class ConversationEntry implements Serializable, Comparable<Convers
       String location = id;
       for (int i = 1, len = conversationIdStack.size(); i < len; i++) {
          String cid = conversationIdStack.get(i);
-         String key = ScopeType.CONVERSATION.getPrefix() + '#' + cid + '$' + name;
-         if (session.get(key) != null) {
+         Map<String, Object> attributes = (Map<String, Object>) session.get( ServerConversationContext.getSessionAttributeName(cid) );
+         if (attributes != null && attributes.get(name) != null) {
             location = cid;
             break;
          }
@@ -1,6 +1,6 @@
 package org.jboss.seam.core;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
@@ -8,21 +8,196 @@ import org.jboss.seam.annotations.Install;
 import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
 
+/**
+ * Generates the ids of new conversations. The strategy may be
+ * chosen in components.xml:
+ *
+ * <ul>
+ * <li>counter - a sequence number shared by all threads (the default)</li>
+ * <li>striped - a sequence number, where each thread reserves a block
+ * of numbers at a time, to avoid contention on the shared counter</li>
+ * <li>time - a 64 bit number, built from the current time, the node id
+ * and a sequence number, so that ids increase over time</li>
+ * </ul>
+ *
+ * When a node id is set, counter and striped ids are prefixed
+ * with it, so that ids generated by different nodes of a cluster
+ * never collide. Time ids always include the node id, and a
+ * node id between 0 and 1023 is used as is, so it is best to
+ * number the nodes of a cluster when using this strategy. When
+ * no node id is set, time ids use the jboss.node.name system
+ * property.
+ */
 @Name("org.jboss.seam.core.ConversationIdGenerator")
 @Scope(ScopeType.APPLICATION)
 @Install(precedence=Install.BUILT_IN)
 public class ConversationIdGenerator
 {
-    private static AtomicInteger uniqueId = new AtomicInteger(0);
-
-    public String getNextId() {
-        //TODO: this is not cluster safe!!!!!
-        return Integer.toString(uniqueId.incrementAndGet());
-    }   
-
-    public static ConversationIdGenerator instance() {
-        ConversationIdGenerator instance = 
-            (ConversationIdGenerator) Component.getInstance("org.jboss.seam.core.ConversationIdGenerator");
-        return (instance!=null) ? instance : new ConversationIdGenerator();
-    }
+   public static final String COUNTER = "counter";
+   public static final String STRIPED = "striped";
+   public static final String TIME = "time";
+
+   private static final long EPOCH = 1262304000000L; //2010-01-01
+   private static final int NODE_BITS = 10;
+   private static final int SEQUENCE_BITS = 12;
+   private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+   private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+   private static final AtomicLong uniqueId = new AtomicLong(0);
+
+   private final AtomicLong lastTimeId = new AtomicLong(0);
+   private final ThreadLocal<long[]> blocks = new ThreadLocal<long[]>();
+
+   private String strategy = COUNTER;
+   private String nodeId;
+   private String prefix;
+   private long nodeNumber = toNodeNumber( System.getProperty("jboss.node.name") );
+   private int blockSize = 64;
+
+   public String getNextId()
+   {
+      if ( TIME.equals(strategy) )
+      {
+         return Long.toString( nextTimeId() );
+      }
+      long id = STRIPED.equals(strategy) ? nextStripedId() : uniqueId.incrementAndGet();
+      return prefix==null ? Long.toString(id) : prefix + id;
+   }
+
+   private long nextStripedId()
+   {
+      long[] block = blocks.get();
+      if (block==null)
+      {
+         block = new long[2];
+         blocks.set(block);
+      }
+      //block[0] is the next id, block[1] the end of the block
+      if ( block[0]>=block[1] )
+      {
+         int size = blockSize;
+         block[0] = uniqueId.getAndAdd(size) + 1;
+         block[1] = block[0] + size;
+      }
+      return block[0]++;
+   }
+
+   private long nextTimeId()
+   {
+      long nodeBits = nodeNumber << SEQUENCE_BITS;
+      while (true)
+      {
+         long last = lastTimeId.get();
+         long lastTime = last >>> (NODE_BITS + SEQUENCE_BITS);
+         long time = System.currentTimeMillis() - EPOCH;
+         long next;
+         if (time>lastTime)
+         {
+            next = (time << (NODE_BITS + SEQUENCE_BITS)) | nodeBits;
+         }
+         else if ( (last & MAX_SEQUENCE)<MAX_SEQUENCE )
+         {
+            //same millisecond, or the clock went back
+            next = last + 1;
+         }
+         else
+         {
+            //sequence exhausted, borrow the next millisecond
+            next = ( (lastTime + 1) << (NODE_BITS + SEQUENCE_BITS) ) | nodeBits;
+         }
+         if ( lastTimeId.compareAndSet(last, next) )
+         {
+            return next;
+         }
+      }
+   }
+
+   public String getStrategy()
+   {
+      return strategy;
+   }
+
+   public void setStrategy(String strategy)
+   {
+      if ( !COUNTER.equals(strategy) && !STRIPED.equals(strategy) && !TIME.equals(strategy) )
+      {
+         throw new IllegalArgumentException("unknown conversation id strategy: " + strategy);
+      }
+      this.strategy = strategy;
+   }
+
+   public String getNodeId()
+   {
+      return nodeId;
+   }
+
+   public void setNodeId(String nodeId)
+   {
+      if (nodeId==null || nodeId.length()==0)
+      {
+         this.nodeId = null;
+         prefix = null;
+         nodeNumber = toNodeNumber( System.getProperty("jboss.node.name") );
+      }
+      else
+      {
+         this.nodeId = nodeId;
+         prefix = toSafeString(nodeId) + '-';
+         nodeNumber = toNodeNumber(nodeId);
+      }
+   }
+
+   public int getBlockSize()
+   {
+      return blockSize;
+   }
+
+   public void setBlockSize(int blockSize)
+   {
+      if (blockSize<1)
+      {
+         throw new IllegalArgumentException("blockSize must be positive");
+      }
+      this.blockSize = blockSize;
+   }
+
+   private static long toNodeNumber(String nodeId)
+   {
+      if (nodeId==null)
+      {
+         return 0;
+      }
+      try
+      {
+         long number = Long.parseLong(nodeId);
+         if (number>=0 && number<=MAX_NODE)
+         {
+            return number;
+         }
+      }
+      catch (NumberFormatException nfe) {}
+      return nodeId.hashCode() & MAX_NODE;
+   }
+
+   /**
+    * Conversation ids appear in URLs and session attribute names
+    */
+   private static String toSafeString(String nodeId)
+   {
+      StringBuilder result = new StringBuilder( nodeId.length() );
+      for ( int i=0; i<nodeId.length(); i++ )
+      {
+         char c = nodeId.charAt(i);
+         boolean safe = (c>='a' && c<='z') || (c>='A' && c<='Z') || (c>='0' && c<='9') || c=='.' || c=='_';
+         result.append( safe ? c : '_' );
+      }
+      return result.toString();
+   }
+
+   public static ConversationIdGenerator instance()
+   {
+      ConversationIdGenerator instance =
+         (ConversationIdGenerator) Component.getInstance("org.jboss.seam.core.ConversationIdGenerator");
+      return (instance!=null) ? instance : new ConversationIdGenerator();
+   }
 }
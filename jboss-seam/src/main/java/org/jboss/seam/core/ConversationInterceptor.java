@@ -16,6 +16,7 @@ import org.jboss.seam.annotations.intercept.Interceptor;
 import org.jboss.seam.bpm.BusinessProcessInterceptor;
 import org.jboss.seam.intercept.AbstractInterceptor;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.intercept.MethodMetadata;
 import org.jboss.seam.navigation.ConversationIdParameter;
 import org.jboss.seam.navigation.Pages;
 import org.jboss.seam.pageflow.Pageflow;
@@ -41,21 +42,22 @@ public class ConversationInterceptor extends AbstractInterceptor
          Method method = invocation.getMethod();
          if ( getComponent().isConversationManagementMethod(method) ) //performance optimization 
          {
+            MethodMetadata metadata = getComponent().getMethodMetadata(method);
       
-            if ( isMissingJoin(method) )
+            if ( isMissingJoin(metadata) )
             {
                throw new IllegalStateException("begin method invoked from a long-running conversation, try using @Begin(join=true) on method: " + method.getName());
             }
             
-            if ( redirectToExistingConversation(method) ) 
+            if ( redirectToExistingConversation(metadata) ) 
             {
                return null;
             }
             else
             {
                Object result = invocation.proceed();   
-               beginConversationIfNecessary(method, result);
-               endConversationIfNecessary(method, result);
+               beginConversationIfNecessary(metadata, result);
+               endConversationIfNecessary(metadata, result);
                return result;
             }
             
@@ -82,8 +84,13 @@ public class ConversationInterceptor extends AbstractInterceptor
             && clazz.getAnnotation(ApplicationException.class).end();
    }
    
-   @SuppressWarnings("deprecation")
    public boolean redirectToExistingConversation(Method method)
+   {
+      return redirectToExistingConversation( getComponent().getMethodMetadata(method) );
+   }
+   
+   @SuppressWarnings("deprecation")
+   private boolean redirectToExistingConversation(MethodMetadata method)
    {
       if ( !Manager.instance().isLongRunningConversation() )
       {
@@ -134,7 +141,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       return false;
    }
 
-   private boolean isMissingJoin(Method method) {
+   private boolean isMissingJoin(MethodMetadata method) {
       return Manager.instance().isLongRunningOrNestedConversation() && ( 
             ( 
                   method.isAnnotationPresent(Begin.class) && 
@@ -147,7 +154,7 @@ public class ConversationInterceptor extends AbstractInterceptor
    }
 
    @SuppressWarnings("deprecation")
-   private void beginConversationIfNecessary(Method method, Object result)
+   private void beginConversationIfNecessary(MethodMetadata method, Object result)
    {
       
       boolean simpleBegin = 
@@ -182,7 +189,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       
    }
    
-   private void setFlushMode(Method method)
+   private void setFlushMode(MethodMetadata method)
    {
       FlushModeType flushMode;
       if (method.isAnnotationPresent(Begin.class))
@@ -205,7 +212,7 @@ public class ConversationInterceptor extends AbstractInterceptor
       PersistenceContexts.instance().changeFlushMode(flushMode);
    }
 
-   private String getProcessDefinitionName(Method method) {
+   private String getProcessDefinitionName(MethodMetadata method) {
       if ( method.isAnnotationPresent(Begin.class) )
       {
          return method.getAnnotation(Begin.class).pageflow();
@@ -248,7 +255,7 @@ public class ConversationInterceptor extends AbstractInterceptor
    }
 
    @SuppressWarnings("deprecation")
-   private void endConversationIfNecessary(Method method, Object result)
+   private void endConversationIfNecessary(MethodMetadata method, Object result)
    {
       boolean isEndAnnotation = method.isAnnotationPresent(End.class);
       boolean isEndTaskAnnotation = method.isAnnotationPresent(EndTask.class);
@@ -15,6 +15,7 @@ import org.jboss.seam.annotations.intercept.Interceptor;
 import org.jboss.seam.bpm.BusinessProcessInterceptor;
 import org.jboss.seam.intercept.AbstractInterceptor;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.intercept.MethodMetadata;
 
 /**
  * Check that a conversational bean is not being invoked
@@ -32,7 +33,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
    @AroundInvoke
    public Object aroundInvoke(InvocationContext invocation) throws Exception
    {
-      Method method = invocation.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( invocation.getMethod() );
 
       if ( isNoConversationForConversationalBean(method) )
       {
@@ -44,7 +45,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
    
    }
    
-   private boolean isNoConversationForConversationalBean(Method method)
+   private boolean isNoConversationForConversationalBean(MethodMetadata method)
    {
       boolean classlevelViolation = componentIsConversational() && 
             !Manager.instance().isLongRunningOrNestedConversation()  &&
@@ -63,7 +64,7 @@ public class ConversationalInterceptor extends AbstractInterceptor
       
    }
 
-   private boolean methodIsConversational(Method method) 
+   private boolean methodIsConversational(MethodMetadata method) 
    {
       return method.isAnnotationPresent(Conversational.class);
    }
@@ -77,5 +78,17 @@ public class ConversationalInterceptor extends AbstractInterceptor
    {
       return getComponent().beanClassHasAnnotation(Conversational.class);
    }
+   
+   @Override
+   public boolean isInterceptorEnabled(Method interfaceMethod)
+   {
+      MethodMetadata method = getComponent().getMethodMetadata(interfaceMethod);
+      return methodIsConversational(method) || ( componentIsConversational() &&
+            !method.isAnnotationPresent(Begin.class) &&
+            !method.isAnnotationPresent(StartTask.class) &&
+            !method.isAnnotationPresent(BeginTask.class) &&
+            !method.isAnnotationPresent(Destroy.class) && 
+            !method.isAnnotationPresent(Create.class) );
+   }
 
 }
@@ -8,6 +8,7 @@ import org.jboss.seam.annotations.intercept.Interceptor;
 import org.jboss.seam.bpm.BusinessProcessInterceptor;
 import org.jboss.seam.intercept.AbstractInterceptor;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.intercept.MethodMetadata;
 import org.jboss.seam.transaction.RollbackInterceptor;
 import org.jboss.seam.transaction.TransactionInterceptor;
 
@@ -50,7 +51,7 @@ public class EventInterceptor extends AbstractInterceptor
    public Object aroundInvoke(InvocationContext ctx) throws Exception
    {
       Object result = ctx.proceed();
-      Method method = ctx.getMethod();
+      MethodMetadata method = getComponent().getMethodMetadata( ctx.getMethod() );
       if ( result!=null || method.getReturnType().equals(void.class) )
       {
          if ( method.isAnnotationPresent(RaiseEvent.class) )
@@ -77,4 +78,10 @@ public class EventInterceptor extends AbstractInterceptor
       return getComponent().beanClassHasAnnotation(RaiseEvent.class); 
    }
    
+   @Override
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return getComponent().getMethodMetadata(method).isAnnotationPresent(RaiseEvent.class);
+   }
+   
 }
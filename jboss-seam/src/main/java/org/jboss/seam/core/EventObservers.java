@@ -0,0 +1,220 @@
+package org.jboss.seam.core;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.core.Init.ObserverMethod;
+import org.jboss.seam.core.Init.ObserverMethodExpression;
+import org.jboss.seam.util.Reflections;
+
+/**
+ * The observers of one event type, compiled from the observer
+ * methods and method expressions registered with {@link Init},
+ * together with the dispatch statistics of the event type.
+ *
+ * Instances are immutable, apart from the statistics, and are
+ * discarded by Init whenever an observer is added or removed.
+ *
+ * @see Init#getEventObservers(String)
+ */
+public class EventObservers
+{
+
+   private final String type;
+   private final ObserverMethodExpression[] expressions;
+   private final ObserverInvoker[] invokers;
+
+   private final AtomicLong dispatchCount = new AtomicLong();
+   private final AtomicLong dispatchTime = new AtomicLong();
+   private final AtomicLong maxDispatchTime = new AtomicLong();
+
+   EventObservers(String type, List<ObserverMethodExpression> expressions, List<ObserverMethod> observers)
+   {
+      this.type = type;
+      this.expressions = expressions==null ?
+            new ObserverMethodExpression[0] :
+            expressions.toArray( new ObserverMethodExpression[expressions.size()] );
+      int size = observers==null ? 0 : observers.size();
+      this.invokers = new ObserverInvoker[size];
+      for (int i=0; i<size; i++)
+      {
+         invokers[i] = new ObserverInvoker( observers.get(i) );
+      }
+   }
+
+   /**
+    * Call the observers of the event, method expressions first,
+    * in the order in which they were registered
+    */
+   void dispatch(Object[] parameters)
+   {
+      long start = System.nanoTime();
+      try
+      {
+         for (ObserverMethodExpression expression: expressions)
+         {
+            expression.getMethodBinding().invoke(parameters);
+         }
+         for (ObserverInvoker invoker: invokers)
+         {
+            invoker.invoke(parameters);
+         }
+      }
+      finally
+      {
+         long time = System.nanoTime() - start;
+         dispatchCount.incrementAndGet();
+         dispatchTime.addAndGet(time);
+         long max = maxDispatchTime.get();
+         while ( time>max && !maxDispatchTime.compareAndSet(max, time) )
+         {
+            max = maxDispatchTime.get();
+         }
+      }
+   }
+
+   public String getType()
+   {
+      return type;
+   }
+
+   public int getObserverCount()
+   {
+      return expressions.length + invokers.length;
+   }
+
+   /**
+    * The number of times the event was raised
+    */
+   public long getDispatchCount()
+   {
+      return dispatchCount.get();
+   }
+
+   /**
+    * The total time, in microseconds, spent calling the observers
+    */
+   public long getDispatchTime()
+   {
+      return dispatchTime.get() / 1000;
+   }
+
+   /**
+    * The longest time, in microseconds, spent calling the observers
+    * of a single occurrence of the event
+    */
+   public long getMaxDispatchTime()
+   {
+      return maxDispatchTime.get() / 1000;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "EventObservers(" + type + ')';
+   }
+
+   /**
+    * Calls an observer method of a component. The method of the
+    * proxy or bean class which is called is resolved once for each
+    * class of component instance, rather than for every call.
+    */
+   private static class ObserverInvoker
+   {
+      private final Component component;
+      private final String name;
+      private final Method method;
+      private final boolean create;
+      private final boolean unwrap;
+
+      private volatile ResolvedMethod resolved;
+
+      ObserverInvoker(ObserverMethod observer)
+      {
+         component = observer.getComponent();
+         name = component.getName();
+         method = observer.getMethod();
+         create = observer.isCreate();
+         unwrap = component.hasUnwrapMethod();
+      }
+
+      void invoke(Object[] parameters)
+      {
+         Object listener = Component.getInstance(name, create, false);
+         if (unwrap)
+         {
+            listener = component.getScope().getContext().get(name);
+         }
+
+         if (listener!=null)
+         {
+            ResolvedMethod current = resolved;
+            if ( current==null || current.clazz!=listener.getClass() )
+            {
+               current = resolve(listener);
+            }
+            if (current==null)
+            {
+               //let the component report the problem
+               component.callComponentMethod(listener, method, parameters);
+            }
+            else
+            {
+               call(listener, current, parameters);
+            }
+         }
+      }
+
+      /**
+       * Same as Component.callComponentMethod()
+       */
+      private void call(Object listener, ResolvedMethod resolvedMethod, Object[] parameters)
+      {
+         if ( !resolvedMethod.hasParameters )
+         {
+            Reflections.invokeAndWrap(resolvedMethod.method, listener);
+         }
+         else if ( parameters.length>0 )
+         {
+            Reflections.invokeAndWrap(resolvedMethod.method, listener, parameters);
+         }
+         else
+         {
+            Reflections.invokeAndWrap(resolvedMethod.method, listener, component);
+         }
+      }
+
+      private ResolvedMethod resolve(Object listener)
+      {
+         try
+         {
+            ResolvedMethod result = new ResolvedMethod( listener.getClass(),
+                  listener.getClass().getMethod( method.getName(), method.getParameterTypes() ) );
+            resolved = result;
+            return result;
+         }
+         catch (NoSuchMethodException nsme)
+         {
+            return null;
+         }
+      }
+
+   }
+
+   private static class ResolvedMethod
+   {
+      final Class<?> clazz;
+      final Method method;
+      final boolean hasParameters;
+
+      ResolvedMethod(Class<?> clazz, Method method)
+      {
+         this.clazz = clazz;
+         this.method = method;
+         this.hasParameters = method.getParameterTypes().length>0;
+      }
+   }
+
+}
@@ -2,8 +2,6 @@ package org.jboss.seam.core;
 
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
-import java.util.List;
-
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
 import org.jboss.seam.annotations.Install;
@@ -17,8 +15,6 @@ import org.jboss.seam.async.Schedule;
 import org.jboss.seam.async.TimerSchedule;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.core.Expressions.MethodExpression;
-import org.jboss.seam.core.Init.ObserverMethod;
-import org.jboss.seam.core.Init.ObserverMethodExpression;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
 
@@ -59,32 +55,11 @@ public class Events
    public void raiseEvent(String type, Object... parameters)
    {
       //TODO: find a way to map event parameters to params in an EL-defined listener
-      log.trace("Processing event:" + type);
-      List<Init.ObserverMethodExpression> list = Init.instance().getObserverMethodExpressions(type);
-      if (list!=null)
-      {
-         for (ObserverMethodExpression listener: list )
-         {
-            listener.getMethodBinding().invoke(parameters);
-         }
-      }
-      List<Init.ObserverMethod> observers = Init.instance().getObserverMethods(type);
+      if ( log.isTraceEnabled() ) log.trace("Processing event:" + type);
+      EventObservers observers = Init.instance().getEventObservers(type);
       if (observers!=null)
       {
-         for (ObserverMethod observer: observers)
-         {
-            String name = observer.getComponent().getName();
-            Object listener = Component.getInstance( name, observer.isCreate(), false );
-            if ( observer.getComponent().hasUnwrapMethod() )
-            {
-               listener = observer.getComponent().getScope().getContext().get(name);
-            }
-            
-            if (listener!=null)
-            {
-               observer.getComponent().callComponentMethod(listener, observer.getMethod(), parameters);
-            }
-         }
+         observers.dispatch(parameters);
       }
    }
    
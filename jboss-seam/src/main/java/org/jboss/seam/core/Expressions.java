@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -26,12 +27,17 @@ import org.jboss.seam.el.EL;
 import org.jboss.seam.el.SeamExpressionFactory;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.util.BoundedCache;
 
 /**
  * Factory for EL method and value expressions.
  * 
  * This default implementation uses JBoss EL.
  * 
+ * Parsed Unified EL expressions are cached, by expression string,
+ * type and parameter types, so that expressions created again and
+ * again from the same strings are only parsed once.
+ * 
  * @author Gavin King
  */
 @Scope(ScopeType.APPLICATION)
@@ -43,6 +49,9 @@ public class Expressions implements Serializable
    private static final LogProvider log = Logging.getLogProvider(Expressions.class);
    private static List<String> blacklist = new ArrayList<String>();
    
+   private int expressionCacheSize = 1000;
+   private transient BoundedCache<ExpressionKey, Object> expressionCache;
+   
    // loading blacklisted patterns of non-valid EL expressions
    static 
    {
@@ -149,7 +158,7 @@ public class Expressions implements Serializable
          
          private javax.el.ValueExpression createExpression()
          {
-            return getExpressionFactory().createValueExpression( getELContext(), expression, type );
+            return parseValueExpression(expression, type);
          }
          
          public T getValue()
@@ -214,7 +223,7 @@ public class Expressions implements Serializable
          
          private javax.el.MethodExpression createExpression()
          {
-            return getExpressionFactory().createMethodExpression( getELContext(), expression, type, argTypes );
+            return parseMethodExpression(expression, type, argTypes);
          }
          
          public T invoke(Object... args)
@@ -230,6 +239,130 @@ public class Expressions implements Serializable
       };
    }
    
+   /**
+    * Get a parsed Unified EL value expression from the cache,
+    * or parse it
+    */
+   protected javax.el.ValueExpression parseValueExpression(String expression, Class type)
+   {
+      ExpressionKey key = new ExpressionKey( expression, type, null, isFacesContextActive() );
+      BoundedCache<ExpressionKey, Object> cache = getExpressionCache();
+      javax.el.ValueExpression result = (javax.el.ValueExpression) cache.get(key);
+      if (result==null)
+      {
+         result = getExpressionFactory().createValueExpression( getELContext(), expression, type );
+         result = (javax.el.ValueExpression) cache.put(key, result);
+      }
+      return result;
+   }
+   
+   /**
+    * Get a parsed Unified EL method expression from the cache,
+    * or parse it
+    */
+   protected javax.el.MethodExpression parseMethodExpression(String expression, Class type, Class[] argTypes)
+   {
+      ExpressionKey key = new ExpressionKey( expression, type, argTypes, isFacesContextActive() );
+      BoundedCache<ExpressionKey, Object> cache = getExpressionCache();
+      javax.el.MethodExpression result = (javax.el.MethodExpression) cache.get(key);
+      if (result==null)
+      {
+         result = getExpressionFactory().createMethodExpression( getELContext(), expression, type, argTypes );
+         result = (javax.el.MethodExpression) cache.put(key, result);
+      }
+      return result;
+   }
+   
+   private BoundedCache<ExpressionKey, Object> getExpressionCache()
+   {
+      BoundedCache<ExpressionKey, Object> cache = expressionCache;
+      if (cache==null)
+      {
+         cache = new BoundedCache<ExpressionKey, Object>(expressionCacheSize);
+         expressionCache = cache;
+      }
+      return cache;
+   }
+   
+   /**
+    * The maximum number of parsed expressions kept in the cache,
+    * 0 to disable caching
+    */
+   public int getExpressionCacheSize()
+   {
+      return expressionCacheSize;
+   }
+   
+   public void setExpressionCacheSize(int expressionCacheSize)
+   {
+      this.expressionCacheSize = expressionCacheSize;
+      expressionCache = null;
+   }
+   
+   /**
+    * The number of times a parsed expression was found in the cache
+    */
+   public long getExpressionCacheHits()
+   {
+      return getExpressionCache().getHits();
+   }
+   
+   /**
+    * The number of times an expression had to be parsed
+    */
+   public long getExpressionCacheMisses()
+   {
+      return getExpressionCache().getMisses();
+   }
+   
+   public double getExpressionCacheHitRatio()
+   {
+      return getExpressionCache().getHitRatio();
+   }
+   
+   /**
+    * Identifies a parsed expression. Expressions parsed in JSF's
+    * ELContext are kept apart from those parsed in ours, since 
+    * they may see different functions.
+    */
+   private static final class ExpressionKey
+   {
+      private final String expression;
+      private final Class type;
+      private final Class[] argTypes;
+      private final boolean faces;
+      private final int hashCode;
+      
+      ExpressionKey(String expression, Class type, Class[] argTypes, boolean faces)
+      {
+         this.expression = expression;
+         this.type = type;
+         this.argTypes = argTypes;
+         this.faces = faces;
+         int hash = expression==null ? 0 : expression.hashCode();
+         hash = 31 * hash + (type==null ? 0 : type.hashCode());
+         hash = 31 * hash + Arrays.hashCode(argTypes);
+         this.hashCode = faces ? hash : ~hash;
+      }
+      
+      @Override
+      public boolean equals(Object other)
+      {
+         if (this==other) return true;
+         if ( !(other instanceof ExpressionKey) ) return false;
+         ExpressionKey that = (ExpressionKey) other;
+         return hashCode==that.hashCode && faces==that.faces && type==that.type &&
+               ( expression==null ? that.expression==null : expression.equals(that.expression) ) &&
+               Arrays.equals(argTypes, that.argTypes);
+      }
+      
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+   }
+   
    /**
     * A value expression - an EL expression that evaluates to
     * an attribute getter or get/set pair. This interface
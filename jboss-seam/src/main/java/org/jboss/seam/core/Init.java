@@ -9,12 +9,14 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.Namespace;
@@ -38,6 +40,7 @@ import org.jboss.seam.security.Identity;
 import org.jboss.seam.security.SecurityInterceptor;
 import org.jboss.seam.transaction.RollbackInterceptor;
 import org.jboss.seam.transaction.TransactionInterceptor;
+import org.jboss.seam.util.BoundedCache;
 import org.jboss.seam.util.Resources;
 import org.jboss.seam.webservice.WSSecurityInterceptor;
 
@@ -84,11 +87,23 @@ public class Init
    private boolean myFacesLifecycleBug;
    private boolean transactionManagementEnabled = true;
    private boolean distributable = false;
+   private boolean compiledBijection = false;
+   private boolean contextLookupCache = false;
+   private boolean elResolutionMemo = false;
    
    private List<String> interceptors = new ArrayList<String>(DEFAULT_INTERCEPTORS);
    
    private Map<String, List<ObserverMethod>> observerMethods = new HashMap<String, List<ObserverMethod>>();
    private Map<String, List<ObserverMethodExpression>> observerMethodBindings = new HashMap<String, List<ObserverMethodExpression>>();
+   private Set<String> observedEventPrefixes = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+   private final Map<String, EventObservers> eventObservers = new ConcurrentHashMap<String, EventObservers>();
+   /**
+    * Recently raised event types which have no observers, so that
+    * raising them does not take the lock every time. Bounded, since
+    * event types may include names or ids.
+    */
+   private final BoundedCache<String, Boolean> unobservedEventTypes = new BoundedCache<String, Boolean>(1000);
+   private final Map<String, String[]> qualifiedNames = new ConcurrentHashMap<String, String[]>();
    private Map<String, FactoryMethod> factories = new HashMap<String, FactoryMethod>();
    private Map<String, FactoryExpression> factoryMethodExpressions = new HashMap<String, FactoryExpression>();
    private Map<String, FactoryExpression> factoryValueExpressions = new HashMap<String, FactoryExpression>();
@@ -363,8 +378,78 @@ public class Init
       return observerMethodBindings.get(eventType);
    }
    
+   /**
+    * The observers of an event type, compiled on first use,
+    * or null if the event type has no observers
+    */
+   public EventObservers getEventObservers(String eventType)
+   {
+      EventObservers result = eventObservers.get(eventType);
+      if ( result==null && unobservedEventTypes.get(eventType)==null )
+      {
+         synchronized (eventObservers)
+         {
+            result = eventObservers.get(eventType);
+            if (result==null)
+            {
+               List<ObserverMethodExpression> expressions = observerMethodBindings.get(eventType);
+               List<ObserverMethod> methods = observerMethods.get(eventType);
+               if ( (expressions==null || expressions.isEmpty()) && (methods==null || methods.isEmpty()) )
+               {
+                  unobservedEventTypes.put(eventType, Boolean.TRUE);
+               }
+               else
+               {
+                  result = new EventObservers(eventType, expressions, methods);
+                  eventObservers.put(eventType, result);
+               }
+            }
+         }
+      }
+      return result;
+   }
+   
+   /**
+    * The compiled observers of all event types which were raised,
+    * with their dispatch statistics
+    */
+   public Collection<EventObservers> getEventObservers()
+   {
+      return Collections.unmodifiableList( new ArrayList<EventObservers>( eventObservers.values() ) );
+   }
+   
+   private void clearEventObservers()
+   {
+      synchronized (eventObservers)
+      {
+         eventObservers.clear();
+         unobservedEventTypes.clear();
+      }
+   }
+   
+   /**
+    * Is there possibly an observer for some event whose type
+    * starts with the given prefix? The prefix must end with a
+    * '.', for example org.jboss.seam.preSetVariable.
+    */
+   public boolean isObservedEventPrefix(String prefix)
+   {
+      return observedEventPrefixes.contains(prefix);
+   }
+   
+   private void addObservedEventPrefixes(String eventType)
+   {
+      int loc = eventType.indexOf('.');
+      while (loc>=0)
+      {
+         observedEventPrefixes.add( eventType.substring(0, loc+1) );
+         loc = eventType.indexOf('.', loc+1);
+      }
+   }
+   
    public void addObserverMethod(String eventType, Method method, Component component, boolean create)
    {
+      addObservedEventPrefixes(eventType);
       List<ObserverMethod> observerList = observerMethods.get(eventType);
       if (observerList==null)
       {
@@ -376,11 +461,13 @@ public class Init
       if (!observerList.contains(observerMethod))
       {
          observerList.add( observerMethod );
+         clearEventObservers();
       }
    }
    
    public void addObserverMethodExpression(String eventType, MethodExpression methodBinding)
    {
+      addObservedEventPrefixes(eventType);
       List<ObserverMethodExpression> observerList = observerMethodBindings.get(eventType);
       if (observerList==null)
       {
@@ -388,6 +475,7 @@ public class Init
          observerMethodBindings.put(eventType, observerList);
       }
       observerList.add( new ObserverMethodExpression(methodBinding) );
+      clearEventObservers();
    }
    
    /**
@@ -410,6 +498,7 @@ public class Init
          }
          observerMethods.get(eventType).removeAll(observerMethodsToRemove);
       }
+      clearEventObservers();
    }
    
    public boolean isJbpmInstalled()
@@ -484,6 +573,29 @@ public class Init
          namespace = namespace.getOrCreateChild( tokens.nextToken() );
       }
       globalImports.add(namespace);
+      qualifiedNames.clear();
+   }
+   
+   /**
+    * The names to which an unqualified EL identifier may refer, in
+    * order of precedence: the identifier itself, then the identifier
+    * qualified by each of the global imports.
+    */
+   public String[] getQualifiedNames(String identifier)
+   {
+      String[] result = qualifiedNames.get(identifier);
+      if (result==null)
+      {
+         Namespace[] imports = globalImports.toArray( new Namespace[globalImports.size()] );
+         result = new String[imports.length+1];
+         result[0] = identifier;
+         for (int i=0; i<imports.length; i++)
+         {
+            result[i+1] = imports[i].qualifyName(identifier);
+         }
+         qualifiedNames.put(identifier, result);
+      }
+      return result;
    }
 
    public void addInstalledFilter(String name)
@@ -621,6 +733,50 @@ public class Init
       this.distributable = distributable;
    }
 
+   public boolean isContextLookupCache()
+   {
+      return contextLookupCache;
+   }
+
+   /**
+    * Remember, for the duration of a request, the context in which
+    * each variable was found, so that repeated lookups of the same
+    * name probe a single context.
+    */
+   public void setContextLookupCache(boolean contextLookupCache)
+   {
+      this.contextLookupCache = contextLookupCache;
+   }
+
+   public boolean isElResolutionMemo()
+   {
+      return elResolutionMemo;
+   }
+
+   /**
+    * Remember, for the duration of a request, the component instance
+    * to which each EL identifier resolved, so that repeated uses of
+    * the identifier skip the namespaces and the contexts.
+    */
+   public void setElResolutionMemo(boolean elResolutionMemo)
+   {
+      this.elResolutionMemo = elResolutionMemo;
+   }
+
+   /**
+    * Should bijection use generated accessors, precompiled when
+    * each component is deployed, instead of reflection?
+    */
+   public boolean isCompiledBijection()
+   {
+      return compiledBijection;
+   }
+
+   public void setCompiledBijection(boolean compiledBijection)
+   {
+      this.compiledBijection = compiledBijection;
+   }
+
    /**
     * Sanity check to warn users if they have disabled core interceptors
     */
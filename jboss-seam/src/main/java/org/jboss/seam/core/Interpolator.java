@@ -4,7 +4,11 @@ import static org.jboss.seam.ScopeType.STATELESS;
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.ScopeType;
@@ -15,10 +19,15 @@ import org.jboss.seam.annotations.intercept.BypassInterceptors;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
+import org.jboss.seam.util.BoundedCache;
 
 /**
  * Interpolates EL expressions in Strings
  * 
+ * Each template is compiled once, into a list of segments which
+ * is cached, and reused by every later interpolation of the same
+ * template.
+ * 
  * @author Gavin King
  */
 @BypassInterceptors
@@ -30,6 +39,8 @@ public class Interpolator
    
    private static final LogProvider log = Logging.getLogProvider(Interpolator.class);
    
+   private static final BoundedCache<String, Segment[]> templates = new BoundedCache<String, Segment[]>(1000);
+   
    public static Interpolator instance()
    {
       if (Contexts.isApplicationContextActive())
@@ -76,8 +87,45 @@ public class Interpolator
    
    private String interpolateExpressions(String string, Object... params)
    {
+      Segment[] segments = templates.get(string);
+      if (segments==null)
+      {
+         segments = templates.put( string, compile(string) );
+      }
+      StringBuilder builder = new StringBuilder( string.length() + 16 );
+      for (Segment segment: segments)
+      {
+         segment.append(builder, string, params);
+      }
+      return builder.toString();
+   }
+   
+   /**
+    * The number of times a compiled template was found in the cache
+    */
+   public static long getTemplateCacheHits()
+   {
+      return templates.getHits();
+   }
+   
+   /**
+    * The number of times a template had to be compiled
+    */
+   public static long getTemplateCacheMisses()
+   {
+      return templates.getMisses();
+   }
+   
+   /**
+    * Split a template into literal text, EL expressions, #n parameters
+    * and {...} message formats. Which of those are interpolated depends
+    * on the parameters, and is decided for each call.
+    */
+   private static Segment[] compile(String string)
+   {
+      List<Segment> segments = new ArrayList<Segment>();
+      StringBuilder literal = new StringBuilder();
       StringTokenizer tokens = new StringTokenizer(string, "#{}", true);
-      StringBuilder builder = new StringBuilder(string.length());
       
       while (tokens.hasMoreTokens())
       {
@@ -89,53 +137,28 @@ public class Interpolator
             
             while (nextTok.equals("#") && tokens.hasMoreTokens())
             {
-               builder.append(tok);
+               literal.append(tok);
                nextTok = tokens.nextToken();
             }
             
             if ("{".equals(nextTok))
             {
                String expression = "#{" + tokens.nextToken() + "}";
-               try
-               {
-                  Object value = Expressions.instance().createValueExpression(expression).getValue();
-                  if (value != null)
-                     builder.append(value);
-               }
-               catch (Exception e)
-               {
-                  log.debug("exception interpolating string: " + string, e);
-               }
                tokens.nextToken(); // the trailing "}"
-               
+               addSegment( segments, literal, new ExpressionSegment(expression) );
             }
             else if (nextTok.equals("#"))
             {
                // could be trailing #
-               builder.append("#");
-               
+               literal.append("#");
+            }
+            else if ( Character.digit(nextTok.charAt(0), 10)>=0 )
+            {
+               addSegment( segments, literal, new ParameterSegment(nextTok) );
             }
             else
             {
-               int index;
-               try
-               {
-                  index = Integer.parseInt(nextTok.substring(0, 1));
-                  if (index >= params.length)
-                  {
-                     // log.warn("parameter index out of bounds: " + index +
-                     // " in: " + string);
-                     builder.append("#").append(nextTok);
-                  }
-                  else
-                  {
-                     builder.append(params[index]).append(nextTok.substring(1));
-                  }
-               }
-               catch (NumberFormatException nfe)
-               {
-                  builder.append("#").append(nextTok);
-               }
+               literal.append("#").append(nextTok);
             }
          }
          else if ("{".equals(tok))
@@ -158,23 +181,7 @@ public class Interpolator
                {
                   if (--level == 0)
                   {
-                     try
-                     {
-                        if (params.length == 0)
-                        {
-                           builder.append(expr.toString());
-                        }
-                        else
-                        {
-                           String value = new MessageFormat(expr.toString(), Locale.instance()).format(params);
-                           builder.append(value);
-                        }
-                     }
-                     catch (Exception e)
-                     {
-                        // if it is a bad message, use the expression itself
-                        builder.append(expr);
-                     }
+                     addSegment( segments, literal, new FormatSegment( expr.toString() ) );
                      expr = null;
                      break;
                   }
@@ -183,16 +190,175 @@ public class Interpolator
             
             if (expr != null)
             {
-               builder.append(expr);
+               literal.append(expr);
             }
          }
          else
          {
-            builder.append(tok);
+            literal.append(tok);
          }
       }
       
-      return builder.toString();
+      if ( literal.length()>0 )
+      {
+         segments.add( new LiteralSegment( literal.toString() ) );
+      }
+      return segments.toArray( new Segment[segments.size()] );
+   }
+   
+   private static void addSegment(List<Segment> segments, StringBuilder literal, Segment segment)
+   {
+      if ( literal.length()>0 )
+      {
+         segments.add( new LiteralSegment( literal.toString() ) );
+         literal.setLength(0);
+      }
+      segments.add(segment);
+   }
+   
+   /**
+    * A part of a compiled template
+    */
+   private static abstract class Segment
+   {
+      abstract void append(StringBuilder builder, String template, Object[] params);
+   }
+   
+   private static final class LiteralSegment extends Segment
+   {
+      private final String text;
+      
+      LiteralSegment(String text)
+      {
+         this.text = text;
+      }
+      
+      @Override
+      void append(StringBuilder builder, String template, Object[] params)
+      {
+         builder.append(text);
+      }
+   }
+   
+   /**
+    * #n, followed by the rest of the token
+    */
+   private static final class ParameterSegment extends Segment
+   {
+      private final String token;
+      private final int index;
+      private final String rest;
+      
+      ParameterSegment(String token)
+      {
+         this.token = token;
+         this.index = Character.digit(token.charAt(0), 10);
+         this.rest = token.substring(1);
+      }
+      
+      @Override
+      void append(StringBuilder builder, String template, Object[] params)
+      {
+         if (index >= params.length)
+         {
+            builder.append("#").append(token);
+         }
+         else
+         {
+            builder.append(params[index]).append(rest);
+         }
+      }
+   }
+   
+   /**
+    * #{...}, evaluated by the Expressions component of the application
+    */
+   private static final class ExpressionSegment extends Segment
+   {
+      private final String expression;
+      private volatile BoundExpression bound;
+      
+      ExpressionSegment(String expression)
+      {
+         this.expression = expression;
+      }
+      
+      @Override
+      void append(StringBuilder builder, String template, Object[] params)
+      {
+         try
+         {
+            Expressions expressions = Expressions.instance();
+            BoundExpression current = bound;
+            if (current==null || current.expressions!=expressions)
+            {
+               current = new BoundExpression( expressions, expressions.createValueExpression(expression) );
+               bound = current;
+            }
+            Object value = current.valueExpression.getValue();
+            if (value != null)
+               builder.append(value);
+         }
+         catch (Exception e)
+         {
+            log.debug("exception interpolating string: " + template, e);
+         }
+      }
+   }
+   
+   private static final class BoundExpression
+   {
+      final Expressions expressions;
+      final Expressions.ValueExpression<Object> valueExpression;
+      
+      BoundExpression(Expressions expressions, Expressions.ValueExpression<Object> valueExpression)
+      {
+         this.expressions = expressions;
+         this.valueExpression = valueExpression;
+      }
+   }
+   
+   /**
+    * {...}, formatted by a MessageFormat when there are parameters.
+    * MessageFormat is not threadsafe, so the MessageFormat parsed
+    * for a locale is cloned for each call, rather than parsing the
+    * pattern again.
+    */
+   private static final class FormatSegment extends Segment
+   {
+      private final String pattern;
+      private final ConcurrentMap<java.util.Locale, MessageFormat> formats = new ConcurrentHashMap<java.util.Locale, MessageFormat>(4);
+      
+      FormatSegment(String pattern)
+      {
+         this.pattern = pattern;
+      }
+      
+      @Override
+      void append(StringBuilder builder, String template, Object[] params)
+      {
+         if (params.length == 0)
+         {
+            builder.append(pattern);
+            return;
+         }
+         try
+         {
+            java.util.Locale locale = Locale.instance();
+            MessageFormat format = formats.get(locale);
+            if (format==null)
+            {
+               format = new MessageFormat(pattern, locale);
+               formats.putIfAbsent(locale, format);
+            }
+            builder.append( ( (MessageFormat) format.clone() ).format(params) );
+         }
+         catch (Exception e)
+         {
+            // if it is a bad message, use the expression itself
+            builder.append(pattern);
+         }
+      }
    }
    
 }
@@ -0,0 +1,140 @@
+package org.jboss.seam.core;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of the time calls to a @Synchronized component
+ * waited for the lock of the component instance, kept by the
+ * SynchronizationInterceptor, per component.
+ *
+ * @see SynchronizationInterceptor
+ */
+public class LockWaitStatistics
+{
+
+   /**
+    * The upper bounds, in milliseconds, of all buckets except
+    * the first, which counts calls which did not wait at all,
+    * and the last, which counts all longer waits
+    */
+   private static final long[] BUCKET_LIMITS = { 1, 10, 100, 1000 };
+
+   private static final ConcurrentMap<String, LockWaitStatistics> statistics = new ConcurrentHashMap<String, LockWaitStatistics>();
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKET_LIMITS.length + 2);
+   private final AtomicLong timeouts = new AtomicLong();
+   private final AtomicLong totalWaitTime = new AtomicLong();
+
+   /**
+    * The statistics of a component, created on demand
+    */
+   public static LockWaitStatistics forComponent(String componentName)
+   {
+      LockWaitStatistics result = statistics.get(componentName);
+      if (result==null)
+      {
+         result = new LockWaitStatistics();
+         LockWaitStatistics previous = statistics.putIfAbsent(componentName, result);
+         if (previous!=null) result = previous;
+      }
+      return result;
+   }
+
+   /**
+    * The names of the components with statistics
+    */
+   public static Set<String> getComponentNames()
+   {
+      return Collections.unmodifiableSet( statistics.keySet() );
+   }
+
+   /**
+    * Record a call which acquired the lock without waiting
+    */
+   void acquired()
+   {
+      counts.incrementAndGet(0);
+   }
+
+   /**
+    * Record a call which acquired the lock after waiting
+    */
+   void acquired(long waitNanos)
+   {
+      long waitMillis = waitNanos / 1000000;
+      int bucket = 1;
+      while ( bucket<=BUCKET_LIMITS.length && waitMillis>=BUCKET_LIMITS[bucket-1] )
+      {
+         bucket++;
+      }
+      counts.incrementAndGet(bucket);
+      totalWaitTime.addAndGet(waitNanos);
+   }
+
+   /**
+    * Record a call which gave up waiting for the lock
+    */
+   void timedOut(long waitNanos)
+   {
+      timeouts.incrementAndGet();
+      totalWaitTime.addAndGet(waitNanos);
+   }
+
+   /**
+    * The upper bounds, in milliseconds, of the buckets of the
+    * histogram, after the first bucket, which counts calls that
+    * did not wait. The last bucket has no upper bound.
+    */
+   public long[] getBucketLimits()
+   {
+      return BUCKET_LIMITS.clone();
+   }
+
+   /**
+    * The number of calls in each bucket of the histogram
+    */
+   public long[] getCounts()
+   {
+      long[] result = new long[ counts.length() ];
+      for ( int i=0; i<result.length; i++ )
+      {
+         result[i] = counts.get(i);
+      }
+      return result;
+   }
+
+   /**
+    * The number of calls which failed with a LockTimeoutException
+    */
+   public long getTimeouts()
+   {
+      return timeouts.get();
+   }
+
+   /**
+    * The total time, in milliseconds, spent waiting for the lock
+    */
+   public long getTotalWaitTime()
+   {
+      return totalWaitTime.get() / 1000000;
+   }
+
+   /**
+    * Start counting from zero again
+    */
+   public void reset()
+   {
+      for ( int i=0; i<counts.length(); i++ )
+      {
+         counts.set(i, 0);
+      }
+      timeouts.set(0);
+      totalWaitTime.set(0);
+   }
+
+}
@@ -88,10 +88,7 @@ public class Manager
 
       if (conversationEntries != null)
       {
-         List<ConversationEntry> entries = new ArrayList<ConversationEntry>(
-               conversationEntries.getConversationEntries());
-
-         for (ConversationEntry conversationEntry : entries)
+         for (ConversationEntry conversationEntry : conversationEntries.getConversationEntries())
          {
             // kill all entries expect the current one
             // current conversation entry will be null if , kill-all is called
@@ -184,6 +181,7 @@ public class Manager
    {
       currentConversationId = id;
       currentConversationEntry = null;
+      Contexts.resetLookupCache();
    }
    
    /**
@@ -277,12 +275,14 @@ public class Manager
    public void setCurrentConversationIdStack(List<String> stack)
    {
       currentConversationIdStack = stack;
+      Contexts.resetLookupCache();
    }
 
    private List<String> createCurrentConversationIdStack(String id)
    {
       currentConversationIdStack = new ArrayList<String>();
       currentConversationIdStack.add(id);
+      Contexts.resetLookupCache();
       return currentConversationIdStack;
    }
 
@@ -384,7 +384,7 @@ public class Manager
       ConversationEntries conversationEntries = ConversationEntries.getInstance();
       if (conversationEntries!=null)
       {
-         List<ConversationEntry> entries = new ArrayList<ConversationEntry>( conversationEntries.getConversationEntries() );
+         List<ConversationEntry> entries = conversationEntries.getTimedOutConversationEntries( currentTime, getConversationTimeout() );
          for (ConversationEntry conversationEntry: entries)
          {
             boolean locked = conversationEntry.lockNoWait(); //we had better not wait for it, or we would be waiting for ALL other requests
@@ -500,8 +500,7 @@ public class Manager
 
    private void destroyNestedConversationContexts(Map<String, Object> session, String conversationId) 
    {
-      List<ConversationEntry> entries = new ArrayList<ConversationEntry>( ConversationEntries.instance().getConversationEntries() );
-      for  ( ConversationEntry ce: entries )
+      for  ( ConversationEntry ce: ConversationEntries.instance().getConversationEntries() )
       {
          if ( ce.getConversationIdStack().contains(conversationId) )
          {
@@ -2,11 +2,13 @@
 package org.jboss.seam.core;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import javax.ejb.Stateful;
-
-import org.jboss.seam.ComponentType;
+import org.jboss.seam.Component;
+import org.jboss.seam.annotations.ReadLock;
+import org.jboss.seam.annotations.SynchronizationType;
 import org.jboss.seam.annotations.intercept.AroundInvoke;
 import org.jboss.seam.annotations.intercept.Interceptor;
 import org.jboss.seam.annotations.intercept.InterceptorType;
@@ -15,20 +17,40 @@ import org.jboss.seam.intercept.InvocationContext;
 
 /**
  * Serializes calls to a component.
- * 
+ *
+ * @see SynchronizationType
  * @author Gavin King
  */
 @Interceptor(type=InterceptorType.CLIENT)
 public class SynchronizationInterceptor extends AbstractInterceptor
 {
    private static final long serialVersionUID = -4173880108889358566L;
-   
-   private ReentrantLock lock = new ReentrantLock(true);
-   
+
+   private ReentrantLock lock;
+   private ReentrantReadWriteLock readWriteLock;
+   private transient LockWaitStatistics statistics;
+
+   @Override
+   public void setComponent(Component component)
+   {
+      super.setComponent(component);
+      if ( component.getSynchronizationType()==SynchronizationType.READ_WRITE )
+      {
+         lock = null;
+         readWriteLock = new ReentrantReadWriteLock();
+      }
+      else
+      {
+         lock = new ReentrantLock( component.getSynchronizationType()!=SynchronizationType.UNFAIR );
+         readWriteLock = null;
+      }
+   }
+
    @AroundInvoke
    public Object aroundInvoke(InvocationContext invocation) throws Exception
    {
-      if ( lock.tryLock( getComponent().getTimeout(), TimeUnit.MILLISECONDS ) )
+      Lock componentLock = getLock(invocation);
+      if ( acquire(componentLock) )
       {
          try
          {
@@ -36,18 +58,72 @@ public class SynchronizationInterceptor extends AbstractInterceptor
          }
          finally
          {
-            lock.unlock();
+            componentLock.unlock();
          }
       }
       else
       {
-         throw new LockTimeoutException("could not acquire lock on @Synchronized component: " + 
+         throw new LockTimeoutException("could not acquire lock on @Synchronized component: " +
                getComponent().getName());
       }
    }
-   
+
+   private Lock getLock(InvocationContext invocation) throws LockTimeoutException
+   {
+      if (readWriteLock==null)
+      {
+         return lock;
+      }
+      else if ( isReadLock(invocation) )
+      {
+         return readWriteLock.readLock();
+      }
+      else if ( readWriteLock.getReadHoldCount()>0 && !readWriteLock.isWriteLockedByCurrentThread() )
+      {
+         //the read lock can't be upgraded, so we would wait until the timeout
+         throw new LockTimeoutException("@ReadLock method called a method which is not @ReadLock on @Synchronized component: " +
+               getComponent().getName());
+      }
+      else
+      {
+         return readWriteLock.writeLock();
+      }
+   }
+
+   private boolean isReadLock(InvocationContext invocation)
+   {
+      return getComponent().getBeanClass().isAnnotationPresent(ReadLock.class) ||
+            getComponent().getMethodMetadata( invocation.getMethod() ).isAnnotationPresent(ReadLock.class);
+   }
+
+   private boolean acquire(Lock componentLock) throws InterruptedException
+   {
+      if (statistics==null)
+      {
+         statistics = LockWaitStatistics.forComponent( getComponent().getName() );
+      }
+      //unlike tryLock(), this respects the fairness of the lock
+      if ( componentLock.tryLock(0, TimeUnit.MILLISECONDS) )
+      {
+         statistics.acquired();
+         return true;
+      }
+      long start = System.nanoTime();
+      boolean acquired = componentLock.tryLock( getComponent().getTimeout(), TimeUnit.MILLISECONDS );
+      long wait = System.nanoTime() - start;
+      if (acquired)
+      {
+         statistics.acquired(wait);
+      }
+      else
+      {
+         statistics.timedOut(wait);
+      }
+      return acquired;
+   }
+
    public boolean isInterceptorEnabled()
-   {      
+   {
       return getComponent().isSynchronize() ;
    }
 
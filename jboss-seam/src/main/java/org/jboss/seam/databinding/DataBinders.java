@@ -0,0 +1,94 @@
+package org.jboss.seam.databinding;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.seam.annotations.DataBinderClass;
+import org.jboss.seam.annotations.DataSelectorClass;
+
+/**
+ * Obtains the DataBinder or DataSelector for a databinding
+ * annotation. Binders that are {@link Shareable} are
+ * instantiated once per annotation type, all others are
+ * instantiated on each call.
+ * 
+ * Shared instances are only weakly referenced here, callers
+ * that want to avoid the lookup should hold on to them.
+ */
+public class DataBinders
+{
+   
+   private static final Map<Class<? extends Annotation>, Reference<DataBinder>> dataBinders = 
+         new WeakHashMap<Class<? extends Annotation>, Reference<DataBinder>>();
+   private static final Map<Class<? extends Annotation>, Reference<DataSelector>> dataSelectors = 
+         new WeakHashMap<Class<? extends Annotation>, Reference<DataSelector>>();
+   
+   /**
+    * Get the DataBinder for an annotation meta-annotated @DataBinderClass
+    */
+   public static DataBinder getDataBinder(Annotation dataModelAnn)
+   {
+      Class<? extends Annotation> annotationType = dataModelAnn.annotationType();
+      Class<? extends DataBinder> binderClass = annotationType.getAnnotation(DataBinderClass.class).value();
+      if ( !isShareable(binderClass) )
+      {
+         return newInstance(binderClass);
+      }
+      synchronized (dataBinders)
+      {
+         Reference<DataBinder> ref = dataBinders.get(annotationType);
+         DataBinder binder = ref==null ? null : ref.get();
+         if (binder==null)
+         {
+            binder = newInstance(binderClass);
+            dataBinders.put( annotationType, new WeakReference<DataBinder>(binder) );
+         }
+         return binder;
+      }
+   }
+   
+   /**
+    * Get the DataSelector for an annotation meta-annotated @DataSelectorClass
+    */
+   public static DataSelector getDataSelector(Annotation dataModelAnn)
+   {
+      Class<? extends Annotation> annotationType = dataModelAnn.annotationType();
+      Class<? extends DataSelector> selectorClass = annotationType.getAnnotation(DataSelectorClass.class).value();
+      if ( !isShareable(selectorClass) )
+      {
+         return newInstance(selectorClass);
+      }
+      synchronized (dataSelectors)
+      {
+         Reference<DataSelector> ref = dataSelectors.get(annotationType);
+         DataSelector selector = ref==null ? null : ref.get();
+         if (selector==null)
+         {
+            selector = newInstance(selectorClass);
+            dataSelectors.put( annotationType, new WeakReference<DataSelector>(selector) );
+         }
+         return selector;
+      }
+   }
+   
+   public static boolean isShareable(Class<?> binderClass)
+   {
+      return Shareable.class.isAssignableFrom(binderClass);
+   }
+   
+   private static <T> T newInstance(Class<? extends T> clazz)
+   {
+      try
+      {
+         return clazz.newInstance();
+      }
+      catch (Exception e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+   
+}
@@ -11,7 +11,7 @@ import org.jboss.seam.faces.DataModels;
  * 
  * @author Gavin King
  */
-public class DataModelBinder implements DataBinder<DataModel, Object, javax.faces.model.DataModel>
+public class DataModelBinder implements DataBinder<DataModel, Object, javax.faces.model.DataModel>, Shareable
 {
 
    public String getVariableName(DataModel out)
@@ -11,7 +11,7 @@ import org.jboss.seam.annotations.datamodel.DataModelSelectionIndex;
  * 
  * @author Gavin King
  */
-public class DataModelIndexSelector implements DataSelector<DataModelSelectionIndex, DataModel>
+public class DataModelIndexSelector implements DataSelector<DataModelSelectionIndex, DataModel>, Shareable
 {
 
    public String getVariableName(DataModelSelectionIndex in)
@@ -11,7 +11,7 @@ import org.jboss.seam.annotations.datamodel.DataModelSelection;
  * 
  * @author Gavin King
  */
-public class DataModelSelector implements DataSelector<DataModelSelection, DataModel>
+public class DataModelSelector implements DataSelector<DataModelSelection, DataModel>, Shareable
 {
    
    public String getVariableName(DataModelSelection in)
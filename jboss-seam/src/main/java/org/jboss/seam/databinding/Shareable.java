@@ -0,0 +1,14 @@
+package org.jboss.seam.databinding;
+
+/**
+ * Marker interface for a DataBinder or DataSelector that
+ * holds no state of its own. A single instance of a shareable
+ * binder is created per databinding annotation type, and it
+ * is called concurrently by all components and requests.
+ * 
+ * Binders that do not implement this interface are
+ * instantiated every time they are used.
+ * 
+ * @see DataBinders
+ */
+public interface Shareable {}
@@ -35,6 +35,7 @@ public abstract class AbstractScanner implements Scanner
       
       // Cache descriptors for performance
       private ClassFile classFile;
+      private Set<String> annotationNames;
       private ClassDescriptor classDescriptor;
       private FileDescriptor fileDescriptor;
       
@@ -51,6 +52,18 @@ public abstract class AbstractScanner implements Scanner
          this.servletContext=servletContext;
       }
       
+      public Handler(String name, ClassFile classFile, Set<Entry<String, DeploymentHandler>> deploymentHandlers, ClassLoader classLoader,ServletContext servletContext)
+      {
+         this(name, deploymentHandlers, classLoader, servletContext);
+         this.classFile = classFile;
+      }
+      
+      public Handler(String name, Set<String> annotationNames, Set<Entry<String, DeploymentHandler>> deploymentHandlers, ClassLoader classLoader,ServletContext servletContext)
+      {
+         this(name, deploymentHandlers, classLoader, servletContext);
+         this.annotationNames = annotationNames;
+      }
+      
       /**
        * Return true if the file was handled (false if it was ignored)
        */
@@ -62,7 +75,7 @@ public abstract class AbstractScanner implements Scanner
             if (name.endsWith(".class"))
             {
                ClassDeploymentHandler classDeploymentHandler = (ClassDeploymentHandler) deploymentHandler;
-               if (hasAnnotations(getClassFile(), classDeploymentHandler.getMetadata().getClassAnnotatedWith()))
+               if (isAnnotated(classDeploymentHandler.getMetadata().getClassAnnotatedWith()))
                {
                   if (getClassDescriptor().getClazz() != null)
                   {
@@ -102,6 +115,26 @@ public abstract class AbstractScanner implements Scanner
          return handled;
       }
       
+      /**
+       * Check the annotations listed in a component index, or else
+       * those of the class file
+       */
+      private boolean isAnnotated(Set<Class<? extends Annotation>> annotationTypes)
+      {
+         if (annotationNames == null)
+         {
+            return hasAnnotations(getClassFile(), annotationTypes);
+         }
+         for (Class<? extends Annotation> annotationType : annotationTypes)
+         {
+            if (annotationNames.contains(annotationType.getName()))
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+      
       private ClassFile getClassFile()
       {
          if (classFile == null)
@@ -225,6 +258,63 @@ public abstract class AbstractScanner implements Scanner
       return new Handler(name, deploymentStrategy.getDeploymentHandlers().entrySet(), deploymentStrategy.getClassLoader(),servletContext).handle();
    }
    
+   /**
+    * Handle a file whose class file was already read, or null if
+    * it is not a class
+    */
+   protected boolean handle(String name, ClassFile classFile)
+   {
+      return new Handler(name, classFile, deploymentStrategy.getDeploymentHandlers().entrySet(), deploymentStrategy.getClassLoader(),servletContext).handle();
+   }
+   
+   /**
+    * Handle a class listed in a component index, with the names of
+    * its annotations
+    */
+   protected boolean handle(String name, Set<String> annotationNames)
+   {
+      return new Handler(name, annotationNames, deploymentStrategy.getDeploymentHandlers().entrySet(), deploymentStrategy.getClassLoader(),servletContext).handle();
+   }
+   
+   /**
+    * Whether any deployment handler may want a file, judging only
+    * by its name and class file. Unlike handle(), this has no side
+    * effects, so it may be called by several threads at once.
+    */
+   protected boolean isCandidate(String name, ClassFile classFile)
+   {
+      for ( DeploymentHandler deploymentHandler: deploymentStrategy.getDeploymentHandlers().values() )
+      {
+         if (deploymentHandler instanceof ClassDeploymentHandler)
+         {
+            if ( classFile!=null && hasAnnotations(classFile, ((ClassDeploymentHandler) deploymentHandler).getMetadata().getClassAnnotatedWith()) )
+            {
+               return true;
+            }
+         }
+         else if ( name.endsWith( deploymentHandler.getMetadata().getFileNameSuffix() ) )
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+   
+   /**
+    * Whether any deployment handler looks for annotated classes
+    */
+   protected boolean hasClassDeploymentHandlers()
+   {
+      for ( DeploymentHandler deploymentHandler: deploymentStrategy.getDeploymentHandlers().values() )
+      {
+         if (deploymentHandler instanceof ClassDeploymentHandler)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+   
    public void scanDirectories(File[] directories, File[] excludedDirectories)
    {
       scanDirectories(directories);
@@ -0,0 +1,392 @@
+package org.jboss.seam.deployment;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.annotation.Annotation;
+
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
+import org.jboss.seam.util.Resources;
+
+/**
+ * The component index of an archive or directory, which lists the
+ * classes of the archive that have annotations, with the names of
+ * their annotations, and the other files of the archive, so that
+ * the scanner does not need to read every class file at startup.
+ *
+ * The index is written to META-INF/seam-components.idx at build
+ * time, after the classes are compiled and the resources copied,
+ * by running main() with the output directory. The jboss-seam jar
+ * is indexed this way in the process-classes phase, and a project
+ * can index its own jars with the same antrun execution:
+ *
+ * <pre>
+ * &lt;java classname="org.jboss.seam.deployment.ComponentIndex"
+ *       classpathref="maven.compile.classpath" fork="true"&gt;
+ *    &lt;arg value="${project.build.outputDirectory}"/&gt;
+ * &lt;/java&gt;
+ * </pre>
+ *
+ * An index is ignored, and the archive scanned as usual, if files
+ * were added, removed or modified after it was written. Within an
+ * archive, a file is only taken as modified if its time is more
+ * than two seconds after that of the index, since zip entry times
+ * may be rounded to two seconds.
+ *
+ * @see DeploymentStrategy#COMPONENT_INDEX_KEY
+ */
+public class ComponentIndex
+{
+   private static final LogProvider log = Logging.getLogProvider(ComponentIndex.class);
+
+   /**
+    * The location of the index in an archive or directory
+    */
+   public static final String NAME = "META-INF/seam-components.idx";
+
+   private static final String HEADER = "# Seam component index, version 1";
+   private static final String ENTRIES = "entries";
+   private static final String CLASS = "class";
+   private static final String RESOURCE = "resource";
+
+   /**
+    * The resolution of the DOS times of zip entries, which some
+    * archivers round up, and which entries with an extended time
+    * don't have
+    */
+   private static final long ARCHIVE_TIME_RESOLUTION = 2000;
+
+   private int entryCount;
+   private final Map<String, Set<String>> classes = new LinkedHashMap<String, Set<String>>();
+   private final List<String> resources = new ArrayList<String>();
+
+   private ComponentIndex() {}
+
+   /**
+    * The annotated classes, as file names, with the names of their
+    * annotation types
+    */
+   public Map<String, Set<String>> getClasses()
+   {
+      return Collections.unmodifiableMap(classes);
+   }
+
+   /**
+    * The files which are not classes
+    */
+   public List<String> getResources()
+   {
+      return Collections.unmodifiableList(resources);
+   }
+
+   /**
+    * Read the index of a directory or archive
+    *
+    * @return the index, or null if there is none, or it is stale
+    */
+   public static ComponentIndex read(File file)
+   {
+      try
+      {
+         return file.isDirectory() ? readDirectory(file) : readArchive(file);
+      }
+      catch (IOException ioe)
+      {
+         log.warn("could not read component index of: " + file, ioe);
+         return null;
+      }
+   }
+
+   private static ComponentIndex readDirectory(File directory) throws IOException
+   {
+      File indexFile = new File(directory, NAME);
+      if ( !indexFile.isFile() )
+      {
+         return null;
+      }
+      ComponentIndex index = parse( new FileInputStream(indexFile) );
+      if ( index==null || !isCurrent( directory, null, indexFile.lastModified(), new int[] { index.entryCount } ) )
+      {
+         log.debug("ignoring stale component index: " + indexFile);
+         return null;
+      }
+      return index;
+   }
+
+   /**
+    * Check that a directory has the expected number of files, and
+    * that none of them was modified after the index
+    */
+   private static boolean isCurrent(File directory, String path, long timestamp, int[] remaining)
+   {
+      File[] children = directory.listFiles();
+      if (children==null)
+      {
+         return false;
+      }
+      for (File child: children)
+      {
+         String name = path==null ? child.getName() : path + '/' + child.getName();
+         if ( child.isDirectory() )
+         {
+            if ( !isCurrent(child, name, timestamp, remaining) )
+            {
+               return false;
+            }
+         }
+         else if ( !isIgnored(name) )
+         {
+            if ( --remaining[0]<0 || child.lastModified()>timestamp )
+            {
+               return false;
+            }
+         }
+      }
+      return path!=null || remaining[0]==0;
+   }
+
+   private static ComponentIndex readArchive(File file) throws IOException
+   {
+      ZipFile zip = new ZipFile(file);
+      try
+      {
+         ZipEntry indexEntry = zip.getEntry(NAME);
+         if (indexEntry==null)
+         {
+            return null;
+         }
+         ComponentIndex index = parse( zip.getInputStream(indexEntry) );
+         if (index==null)
+         {
+            return null;
+         }
+         int count = 0;
+         Enumeration<? extends ZipEntry> entries = zip.entries();
+         while ( entries.hasMoreElements() )
+         {
+            ZipEntry entry = entries.nextElement();
+            if ( !entry.isDirectory() && !isIgnored( entry.getName() ) )
+            {
+               count++;
+               if ( entry.getTime()>indexEntry.getTime()+ARCHIVE_TIME_RESOLUTION )
+               {
+                  count = -1;
+                  break;
+               }
+            }
+         }
+         if (count!=index.entryCount)
+         {
+            log.debug("ignoring stale component index of: " + file);
+            return null;
+         }
+         return index;
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * The index itself, and the files added when an archive is
+    * packaged
+    */
+   private static boolean isIgnored(String name)
+   {
+      return name.equals(NAME) || name.equals("META-INF/MANIFEST.MF") || name.startsWith("META-INF/maven/");
+   }
+
+   private static ComponentIndex parse(InputStream stream) throws IOException
+   {
+      BufferedReader reader = new BufferedReader( new InputStreamReader(stream, "UTF-8") );
+      try
+      {
+         if ( !HEADER.equals( reader.readLine() ) )
+         {
+            return null;
+         }
+         ComponentIndex index = new ComponentIndex();
+         index.entryCount = -1;
+         String line;
+         while ( (line = reader.readLine())!=null )
+         {
+            String[] fields = line.split("\t");
+            if ( fields[0].equals(ENTRIES) && fields.length==2 )
+            {
+               index.entryCount = Integer.parseInt( fields[1] );
+            }
+            else if ( fields[0].equals(CLASS) && fields.length>=2 )
+            {
+               Set<String> annotationNames = new HashSet<String>();
+               for (int i=2; i<fields.length; i++)
+               {
+                  annotationNames.add( fields[i] );
+               }
+               index.classes.put( fields[1], annotationNames );
+            }
+            else if ( fields[0].equals(RESOURCE) && fields.length==2 )
+            {
+               index.resources.add( fields[1] );
+            }
+            else if ( line.length()>0 )
+            {
+               return null;
+            }
+         }
+         return index.entryCount<0 ? null : index;
+      }
+      catch (NumberFormatException nfe)
+      {
+         return null;
+      }
+      finally
+      {
+         Resources.closeReader(reader);
+      }
+   }
+
+   /**
+    * Create the index of a directory, reading its class files
+    */
+   public static ComponentIndex create(File directory) throws IOException
+   {
+      ComponentIndex index = new ComponentIndex();
+      index.add(directory, null);
+      return index;
+   }
+
+   private void add(File directory, String path) throws IOException
+   {
+      File[] children = directory.listFiles();
+      if (children==null)
+      {
+         throw new IOException("not a directory: " + directory);
+      }
+      for (File child: children)
+      {
+         String name = path==null ? child.getName() : path + '/' + child.getName();
+         if ( child.isDirectory() )
+         {
+            add(child, name);
+         }
+         else if ( !isIgnored(name) )
+         {
+            entryCount++;
+            if ( name.endsWith(".class") )
+            {
+               Set<String> annotationNames = getAnnotationNames(child);
+               if ( !annotationNames.isEmpty() )
+               {
+                  classes.put(name, annotationNames);
+               }
+            }
+            else
+            {
+               resources.add(name);
+            }
+         }
+      }
+   }
+
+   /**
+    * The names of the runtime visible annotations of a class file,
+    * which are those the deployment handlers look at
+    */
+   private static Set<String> getAnnotationNames(File file) throws IOException
+   {
+      DataInputStream stream = new DataInputStream( new FileInputStream(file) );
+      try
+      {
+         Set<String> result = new HashSet<String>();
+         ClassFile classFile = new ClassFile(stream);
+         AnnotationsAttribute visible = (AnnotationsAttribute) classFile.getAttribute( AnnotationsAttribute.visibleTag );
+         if (visible!=null)
+         {
+            for ( Annotation annotation: visible.getAnnotations() )
+            {
+               result.add( annotation.getTypeName() );
+            }
+         }
+         return result;
+      }
+      finally
+      {
+         stream.close();
+      }
+   }
+
+   /**
+    * Write the index to META-INF/seam-components.idx in a directory
+    */
+   public void write(File directory) throws IOException
+   {
+      File indexFile = new File(directory, NAME);
+      indexFile.getParentFile().mkdirs();
+      Writer writer = new OutputStreamWriter( new FileOutputStream(indexFile), "UTF-8" );
+      try
+      {
+         writer.write(HEADER + '\n');
+         writer.write(ENTRIES + '\t' + entryCount + '\n');
+         for ( Map.Entry<String, Set<String>> entry: classes.entrySet() )
+         {
+            writer.write(CLASS + '\t' + entry.getKey());
+            for ( String annotationName: entry.getValue() )
+            {
+               writer.write('\t' + annotationName);
+            }
+            writer.write('\n');
+         }
+         for (String resource: resources)
+         {
+            writer.write(RESOURCE + '\t' + resource + '\n');
+         }
+      }
+      finally
+      {
+         writer.close();
+      }
+   }
+
+   /**
+    * Write the index of each directory given
+    */
+   public static void main(String[] args) throws IOException
+   {
+      if (args.length==0)
+      {
+         System.err.println("usage: ComponentIndex directory...");
+         System.exit(1);
+      }
+      for (String arg: args)
+      {
+         File directory = new File(arg);
+         ComponentIndex index = create(directory);
+         index.write(directory);
+         System.out.println("indexed " + index.classes.size() + " annotated classes and " +
+               index.resources.size() + " other files of " + directory);
+      }
+   }
+
+}
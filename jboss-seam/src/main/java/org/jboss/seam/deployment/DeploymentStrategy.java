@@ -42,6 +42,19 @@ public abstract class DeploymentStrategy
     */
    public static final String SCANNERS_KEY = "org.jboss.seam.deployment.scanners";
    
+   /**
+    * The key under which to disable the use of component indexes,
+    * by setting it to false, so that every archive is scanned.
+    * 
+    * This can be specified as a System property or in 
+    * /META-INF/seam-deployment.properties
+    * 
+    * @see ComponentIndex
+    */
+   public static final String COMPONENT_INDEX_KEY = "org.jboss.seam.deployment.componentIndex";
+   
+   private Boolean componentIndexEnabled;
+   
    /**
     * Do the scan for resources
     * 
@@ -205,6 +218,19 @@ public abstract class DeploymentStrategy
       return null;
    }
 
+   /**
+    * Whether the scanner may use the component index of an archive
+    * instead of scanning it
+    */
+   public boolean isComponentIndexEnabled()
+   {
+      if (componentIndexEnabled == null)
+      {
+         componentIndexEnabled = !new SeamDeploymentProperties(getClassLoader()).getPropertyValues(COMPONENT_INDEX_KEY).contains("false");
+      }
+      return componentIndexEnabled;
+   }
+   
    public List<File> getFiles()
    {
       return files;
@@ -0,0 +1,278 @@
+package org.jboss.seam.deployment;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import javassist.bytecode.ClassFile;
+
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
+
+/**
+ * Implementation of {@link Scanner} which scans the archives and
+ * directories of a {@link java.net.URLClassLoader} on a pool of
+ * threads. It is used by listing it under
+ * org.jboss.seam.deployment.scanners in
+ * /META-INF/seam-scanner.properties.
+ *
+ * Each thread reads the class files of an archive or directory
+ * straight from it, rather than through the class loader, and
+ * keeps the files which a deployment handler may want. These are
+ * then passed to the deployment handlers by the calling thread,
+ * in the order of the archives, so the deployment handlers need
+ * not be thread safe, and classes are loaded as before.
+ *
+ * @see URLScanner
+ */
+public class ParallelURLScanner extends URLScanner
+{
+   private static final LogProvider log = Logging.getLogProvider(ParallelURLScanner.class);
+
+   public ParallelURLScanner(DeploymentStrategy deploymentStrategy)
+   {
+      super(deploymentStrategy);
+   }
+
+   /**
+    * The number of threads which scan archives
+    */
+   protected int getThreadCount()
+   {
+      return Runtime.getRuntime().availableProcessors();
+   }
+
+   @Override
+   protected void handle(Set<String> paths)
+   {
+      if ( paths.isEmpty() )
+      {
+         return;
+      }
+
+      final boolean readClassFiles = hasClassDeploymentHandlers();
+      final boolean useIndex = getDeploymentStrategy().isComponentIndexEnabled();
+      ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( getThreadCount(), paths.size() ) ), new ScannerThreadFactory() );
+      try
+      {
+         List<String> urlPaths = new ArrayList<String>(paths);
+         List<Future<Scan>> results = new ArrayList<Future<Scan>>( urlPaths.size() );
+         for (final String urlPath: urlPaths)
+         {
+            results.add( executor.submit( new Callable<Scan>()
+            {
+               public Scan call() throws IOException
+               {
+                  log.trace("scanning: " + urlPath);
+                  File file = new File(urlPath);
+                  Scan scan = new Scan();
+                  scan.index = useIndex ? ComponentIndex.read(file) : null;
+                  if (scan.index!=null)
+                  {
+                     return scan;
+                  }
+                  scan.candidates = new ArrayList<Candidate>();
+                  if ( file.isDirectory() )
+                  {
+                     scanDirectory(file, null, readClassFiles, scan.candidates);
+                  }
+                  else
+                  {
+                     scanArchive(file, readClassFiles, scan.candidates);
+                  }
+                  return scan;
+               }
+            } ) );
+         }
+
+         for (int i=0; i<urlPaths.size(); i++)
+         {
+            File file = new File( urlPaths.get(i) );
+            Scan scan;
+            try
+            {
+               scan = results.get(i).get();
+            }
+            catch (ExecutionException ee)
+            {
+               if ( ee.getCause() instanceof IOException )
+               {
+                  log.warn("could not read entries", ee.getCause());
+                  continue;
+               }
+               else if ( ee.getCause() instanceof RuntimeException )
+               {
+                  throw (RuntimeException) ee.getCause();
+               }
+               throw new RuntimeException( ee.getCause() );
+            }
+
+            if (scan.index!=null)
+            {
+               handleIndex(file, scan.index);
+               continue;
+            }
+            if ( !file.isDirectory() )
+            {
+               touchTimestamp(file);
+            }
+            for (Candidate candidate: scan.candidates)
+            {
+               boolean handled = handle(candidate.name, candidate.classFile);
+               if ( handled && candidate.file!=null )
+               {
+                  touchTimestamp(candidate.file);
+               }
+            }
+         }
+      }
+      catch (InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("interrupted while scanning", ie);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private void scanArchive(File file, boolean readClassFiles, List<Candidate> candidates) throws IOException
+   {
+      ZipFile zip;
+      try
+      {
+         log.trace("archive: " + file);
+         zip = new ZipFile(file);
+      }
+      catch (ZipException e)
+      {
+         throw new RuntimeException("Error handling file " + file, e);
+      }
+      try
+      {
+         Enumeration<? extends ZipEntry> entries = zip.entries();
+         while ( entries.hasMoreElements() )
+         {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            ClassFile classFile = null;
+            if ( readClassFiles && name.endsWith(".class") )
+            {
+               classFile = readClassFile( name, zip.getInputStream(entry) );
+            }
+            if ( isCandidate(name, classFile) )
+            {
+               candidates.add( new Candidate(name, classFile, null) );
+            }
+         }
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   private void scanDirectory(File directory, String path, boolean readClassFiles, List<Candidate> candidates) throws IOException
+   {
+      log.trace("handling directory: " + directory);
+      for ( File child: directory.listFiles() )
+      {
+         String name = path==null ? child.getName() : path + '/' + child.getName();
+         if ( child.isDirectory() )
+         {
+            scanDirectory(child, name, readClassFiles, candidates);
+         }
+         else
+         {
+            ClassFile classFile = null;
+            if ( readClassFiles && name.endsWith(".class") )
+            {
+               classFile = readClassFile( name, new FileInputStream(child) );
+            }
+            if ( isCandidate(name, classFile) )
+            {
+               candidates.add( new Candidate(name, classFile, child) );
+            }
+         }
+      }
+   }
+
+   private static ClassFile readClassFile(String name, InputStream stream)
+   {
+      DataInputStream dstream = new DataInputStream( new BufferedInputStream(stream) );
+      try
+      {
+         return new ClassFile(dstream);
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException("Error loading class file " + name, e);
+      }
+      finally
+      {
+         try
+         {
+            dstream.close();
+         }
+         catch (IOException e) {}
+      }
+   }
+
+   /**
+    * The component index of an archive or directory, or else the
+    * files found by scanning it
+    */
+   private static class Scan
+   {
+      ComponentIndex index;
+      List<Candidate> candidates;
+   }
+
+   /**
+    * A file which a deployment handler may want
+    */
+   private static class Candidate
+   {
+      final String name;
+      final ClassFile classFile;
+      final File file;
+
+      Candidate(String name, ClassFile classFile, File file)
+      {
+         this.name = name;
+         this.classFile = classFile;
+         this.file = file;
+      }
+   }
+
+   private static class ScannerThreadFactory implements ThreadFactory
+   {
+      private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = delegate.newThread(runnable);
+         thread.setName( "seam-scanner-" + thread.getName() );
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+}
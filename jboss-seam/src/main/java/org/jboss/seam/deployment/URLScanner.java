@@ -8,6 +8,7 @@ import java.net.URLDecoder;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.Map.Entry;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -98,6 +99,10 @@ public class URLScanner extends AbstractScanner
          {
             log.trace("scanning: " + urlPath);
             File file = new File(urlPath);
+            if ( handleIndex(file) )
+            {
+               continue;
+            }
             if ( file.isDirectory() )
             {
                handleDirectory(file, null);
@@ -114,6 +119,46 @@ public class URLScanner extends AbstractScanner
       }
    }
 
+   /**
+    * Handle the files listed in the component index of a directory
+    * or archive, instead of scanning it, if it has a current index
+    * 
+    * @return true if an index was used
+    */
+   protected boolean handleIndex(File file)
+   {
+      if ( !getDeploymentStrategy().isComponentIndexEnabled() )
+      {
+         return false;
+      }
+      ComponentIndex index = ComponentIndex.read(file);
+      if (index == null)
+      {
+         return false;
+      }
+      handleIndex(file, index);
+      return true;
+   }
+
+   /**
+    * Handle the files listed in the component index of a directory
+    * or archive
+    */
+   protected void handleIndex(File file, ComponentIndex index)
+   {
+      log.trace("using component index: " + file);
+      File timestampFile = file.isDirectory() ? new File(file, ComponentIndex.NAME) : file;
+      touchTimestamp(timestampFile);
+      for ( Entry<String, Set<String>> entry: index.getClasses().entrySet() )
+      {
+         handle( entry.getKey(), entry.getValue() );
+      }
+      for ( String resource: index.getResources() )
+      {
+         handle(resource);
+      }
+   }
+
    private void handleArchiveByFile(File file) throws IOException
    {
       try
@@ -170,7 +215,7 @@ public class URLScanner extends AbstractScanner
       }
    }
 
-   private void touchTimestamp(File file)
+   protected void touchTimestamp(File file)
    {
       if (file.lastModified() > timestamp)
       {
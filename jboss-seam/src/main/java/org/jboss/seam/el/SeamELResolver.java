@@ -9,7 +9,9 @@ import java.util.Map;
 import javax.el.ELContext;
 import javax.el.ELResolver;
 
+import org.jboss.seam.Component;
 import org.jboss.seam.Namespace;
+import org.jboss.seam.ScopeType;
 import org.jboss.seam.contexts.Context;
 import org.jboss.seam.contexts.Contexts;
 import org.jboss.seam.core.Init;
@@ -144,19 +146,21 @@ public class SeamELResolver extends ELResolver
         String key = (String) property;
         Init init = Init.instance();
 
-        // look for a component in the root namespace
-        Object result = init.getRootNamespace().getComponentInstance(key);
+        Object result = Contexts.getMemoizedResolution(key);
         if (result != null) {
             context.setPropertyResolved(true);
             return result;
-        } else {
-            // look for a component in the imported namespaces
-            for (Namespace ns : init.getGlobalImports()) {
-                result = ns.getComponentInstance(key);
-                if (result != null) {
-                    context.setPropertyResolved(true);
-                    return result;
+        }
+
+        // look for a component in the root namespace, then in the imported namespaces
+        for (String name : init.getQualifiedNames(key)) {
+            result = Component.getInstance(name, true);
+            if (result != null) {
+                context.setPropertyResolved(true);
+                if ( isMemoizable(name) ) {
+                    Contexts.memoizeResolution(key, result);
                 }
+                return result;
             }
         }
 
@@ -168,6 +172,25 @@ public class SeamELResolver extends ELResolver
         return namespace;
     }
 
+    /**
+     * Only instances of components which are kept in a context,
+     * and which are not unwrapped, resolve to the same object
+     * until the variable is set again. Components kept in the
+     * shared contexts are not memoized, since other threads may
+     * set the variable.
+     */
+    private boolean isMemoizable(String name) {
+        if ( !Contexts.isResolutionMemoEnabled() ) {
+            return false;
+        }
+        Component component = Component.forName(name);
+        if (component == null || component.hasUnwrapMethod()) {
+            return false;
+        }
+        ScopeType scope = component.getScope();
+        return scope == ScopeType.EVENT || scope == ScopeType.PAGE || scope == ScopeType.CONVERSATION;
+    }
+
     private Object resolveInNamespace(ELContext context, Namespace namespace, Object property) {
         Object result = namespace.get((String) property);
         // JBSEAM-3077 if the result is null, it means that there is no component instance bound to this qualified name
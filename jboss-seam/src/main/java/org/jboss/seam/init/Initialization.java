@@ -898,7 +898,7 @@ public class Initialization
                if (pages != null) {
                   // application context is needed for creating expressions
                   Lifecycle.setupApplication();
-                  pages.initialize(warRootDeploymentStrategy.getDotPageDotXmlFileNames());
+                  pages.redeploy(warRootDeploymentStrategy.getDotPageDotXmlFileNames());
                   Lifecycle.cleanupApplication();
                }
                ServletLifecycle.getServletContext().removeAttribute(Seam.getComponentName(Exceptions.class));
@@ -2,6 +2,7 @@
 package org.jboss.seam.intercept;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 
 import org.jboss.seam.Component;
 
@@ -31,4 +32,19 @@ public abstract class AbstractInterceptor implements Serializable, OptimizedInte
       return component;
    }
 
+   /**
+    * Return false if this interceptor has nothing to do when the
+    * given method is called, so that it may be left out of the
+    * interceptor chain of that method. The method is the one
+    * passed to aroundInvoke(), so it may be declared by a business
+    * interface of the component.
+    * 
+    * Called once per method, on an instance that is not otherwise
+    * used, after isInterceptorEnabled() returned true.
+    */
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return true;
+   }
+
 }
@@ -13,9 +13,9 @@ import java.util.List;
 class EE5SeamInvocationContext extends SeamInvocationContext implements javax.interceptor.InvocationContext
 {
 
-   public EE5SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors)
+   public EE5SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
    {
-      super(context, type, userInterceptors, interceptors);
+      super(context, type, userInterceptors, interceptors, chain);
    }
 
    public Object getTimer()
@@ -264,4 +264,16 @@ public final class Interceptor extends Reflections
       }
    }
    
+   /**
+    * Return false if the interceptor has nothing to do when the
+    * given method is called
+    * 
+    * @see AbstractInterceptor#isInterceptorEnabled(Method)
+    */
+   public boolean isInterceptorEnabled(Method method)
+   {
+      return !(statelessUserInterceptorInstance instanceof AbstractInterceptor) ||
+            ( (AbstractInterceptor) statelessUserInterceptorInstance ).isInterceptorEnabled(method);
+   }
+   
 }
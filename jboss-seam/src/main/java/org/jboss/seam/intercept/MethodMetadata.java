@@ -0,0 +1,107 @@
+package org.jboss.seam.intercept;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.Component;
+
+/**
+ * What interceptors need to know about a method of a component,
+ * read once, when the method is first called, and shared by all
+ * interceptors of the component.
+ *
+ * The annotations of the method are available without reflection.
+ * An interceptor that needs to derive more from the method may
+ * define an {@link Entry}, which is computed the first time it is
+ * requested, and then kept with the method.
+ *
+ * @see Component#getMethodMetadata(Method)
+ */
+public final class MethodMetadata
+{
+
+   /**
+    * Something derived from a method, and kept in its metadata.
+    * An entry is identified by its instance, which should be kept
+    * in a static field.
+    */
+   public static interface Entry<T>
+   {
+      /**
+       * Compute the value of this entry for a method. Must not
+       * depend on anything but the component and the method.
+       * May return null.
+       */
+      public T create(Component component, Method method);
+   }
+
+   private static final Object NULL = new Object();
+
+   private final Component component;
+   private final Method method;
+   private final Map<Class<? extends Annotation>, Annotation> annotations;
+   private final ConcurrentMap<Entry<?>, Object> entries = new ConcurrentHashMap<Entry<?>, Object>(4);
+
+   public MethodMetadata(Component component, Method method)
+   {
+      this.component = component;
+      this.method = method;
+      Annotation[] methodAnnotations = method.getAnnotations();
+      annotations = new IdentityHashMap<Class<? extends Annotation>, Annotation>(methodAnnotations.length);
+      for (Annotation annotation: methodAnnotations)
+      {
+         annotations.put( annotation.annotationType(), annotation );
+      }
+   }
+
+   public Method getMethod()
+   {
+      return method;
+   }
+
+   public String getName()
+   {
+      return method.getName();
+   }
+
+   public Class<?> getReturnType()
+   {
+      return method.getReturnType();
+   }
+
+   public boolean isAnnotationPresent(Class<? extends Annotation> annotationType)
+   {
+      return annotations.containsKey(annotationType);
+   }
+
+   @SuppressWarnings("unchecked")
+   public <A extends Annotation> A getAnnotation(Class<A> annotationType)
+   {
+      return (A) annotations.get(annotationType);
+   }
+
+   @SuppressWarnings("unchecked")
+   public <T> T get(Entry<T> entry)
+   {
+      Object value = entries.get(entry);
+      if (value==null)
+      {
+         T created = entry.create(component, method);
+         value = created==null ? NULL : created;
+         Object previous = entries.putIfAbsent(entry, value);
+         if (previous!=null) value = previous;
+      }
+      return value==NULL ? null : (T) value;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MethodMetadata(" + component.getName() + '.' + method.getName() + ')';
+   }
+
+}
@@ -128,11 +128,20 @@ public class RootInterceptor implements Serializable
    {
       if ( isProcessInterceptors( invocation.getMethod(), invocation.getTarget() ) )
       {
+         int[] chain = getInterceptorChain(invocation, eventType);
+         if ( chain!=null && chain.length==0 )
+         {
+            if ( log.isTraceEnabled() ) 
+            {
+               log.trace( "no interceptors enabled: " + getInterceptionMessage(invocation, eventType) );
+            }
+            return invocation;
+         }
          if ( log.isTraceEnabled() ) 
          {
             log.trace( "intercepted: " + getInterceptionMessage(invocation, eventType) );
          }
-         return createSeamInvocationContext(invocation, eventType);
+         return createSeamInvocationContext(invocation, eventType, chain);
       }
       else 
       {
@@ -144,16 +153,27 @@ public class RootInterceptor implements Serializable
       }
    }
 
-   private SeamInvocationContext createSeamInvocationContext(InvocationContext invocation, EventType eventType) throws Exception
+   /**
+    * The interceptors enabled for a business method, or null
+    * if all interceptors should be called
+    */
+   private int[] getInterceptorChain(InvocationContext invocation, EventType eventType)
+   {
+      Method method = invocation.getMethod();
+      return eventType==EventType.AROUND_INVOKE && method!=null ?
+            getComponent().getInterceptorChain(type, method) : null;
+   }
+
+   private SeamInvocationContext createSeamInvocationContext(InvocationContext invocation, EventType eventType, int[] chain) throws Exception
    {
       return EJB.INVOCATION_CONTEXT_AVAILABLE ?
-            createEE5SeamInvocationContext(invocation, eventType) :
-            createNonEE5SeamInvocationContext(invocation, eventType);
+            createEE5SeamInvocationContext(invocation, eventType, chain) :
+            createNonEE5SeamInvocationContext(invocation, eventType, chain);
    }
 
-   private SeamInvocationContext createNonEE5SeamInvocationContext(InvocationContext invocation, EventType eventType)
+   private SeamInvocationContext createNonEE5SeamInvocationContext(InvocationContext invocation, EventType eventType, int[] chain)
    {
-      return new SeamInvocationContext( invocation, eventType, userInterceptors, getComponent().getInterceptors(type) );
+      return new SeamInvocationContext( invocation, eventType, userInterceptors, getComponent().getInterceptors(type), chain );
    }
    
    private static final Constructor CONSTRUCTOR;
@@ -163,7 +183,7 @@ public class RootInterceptor implements Serializable
       {
          try
          {
-            Class[] paramTypes = {InvocationContext.class, EventType.class, List.class, List.class};
+            Class[] paramTypes = {InvocationContext.class, EventType.class, List.class, List.class, int[].class};
             CONSTRUCTOR = Class.forName("org.jboss.seam.intercept.EE5SeamInvocationContext").getConstructor(paramTypes);
          }
          catch (Exception e)
@@ -178,11 +198,11 @@ public class RootInterceptor implements Serializable
       
    }
 
-   private SeamInvocationContext createEE5SeamInvocationContext(InvocationContext invocation, EventType eventType)
+   private SeamInvocationContext createEE5SeamInvocationContext(InvocationContext invocation, EventType eventType, int[] chain)
    {
       try
       {
-         return (SeamInvocationContext) CONSTRUCTOR.newInstance( invocation, eventType, userInterceptors, getComponent().getInterceptors(type) );
+         return (SeamInvocationContext) CONSTRUCTOR.newInstance( invocation, eventType, userInterceptors, getComponent().getInterceptors(type), chain );
       }
       catch (Exception e)
       {
@@ -19,14 +19,22 @@ class SeamInvocationContext implements InvocationContext
    private final InvocationContext context;
    private final List<Interceptor> interceptors;
    private final List<Object> userInterceptors;
+   private final int[] chain;
+   private final int length;
    int location = 0;
 
-   public SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors)
+   /**
+    * @param chain the positions of the interceptors to be called,
+    *              or null if they should all be called
+    */
+   public SeamInvocationContext(InvocationContext context, EventType type, List<Object> userInterceptors, List<Interceptor> interceptors, int[] chain)
    {
       this.context = context;
       this.interceptors = interceptors;
       this.userInterceptors = userInterceptors;
       this.eventType = type;
+      this.chain = chain;
+      this.length = chain==null ? interceptors.size() : chain.length;
    }
    
    public Object getTarget()
@@ -51,14 +59,15 @@ class SeamInvocationContext implements InvocationContext
 
    public Object proceed() throws Exception
    {
-      if ( location==interceptors.size() )
+      if ( location==length )
       {
          return context.proceed();
       }
       else
       {
-         Object userInterceptor = userInterceptors.get(location);
-         Interceptor interceptor = interceptors.get(location);
+         int index = chain==null ? location : chain[location];
+         Object userInterceptor = userInterceptors.get(index);
+         Interceptor interceptor = interceptors.get(index);
          location++;
          switch (eventType)
          {
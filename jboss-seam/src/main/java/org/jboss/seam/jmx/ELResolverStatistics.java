@@ -0,0 +1,133 @@
+package org.jboss.seam.jmx;
+
+import static org.jboss.seam.ScopeType.APPLICATION;
+import static org.jboss.seam.annotations.Install.BUILT_IN;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.jboss.seam.annotations.Create;
+import org.jboss.seam.annotations.Destroy;
+import org.jboss.seam.annotations.Install;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.Startup;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.core.Init;
+import org.jboss.seam.log.Log;
+import org.jboss.seam.log.Logging;
+
+/**
+ * Publishes the counters of the EL resolution memo and of the
+ * context lookup cache as an MBean of the platform MBeanServer.
+ * The counters include completed requests only.
+ * 
+ * Not installed by default. To install it, add
+ * &lt;component class="org.jboss.seam.jmx.ELResolverStatistics"/&gt;
+ * to components.xml.
+ * 
+ * @see org.jboss.seam.core.Init#setElResolutionMemo(boolean)
+ * @see org.jboss.seam.core.Init#setContextLookupCache(boolean)
+ */
+@Name("org.jboss.seam.jmx.elResolverStatistics")
+@BypassInterceptors
+@Scope(APPLICATION)
+@Startup
+@Install(value=false, precedence=BUILT_IN)
+public class ELResolverStatistics implements ELResolverStatisticsMBean
+{
+   private static Log log = Logging.getLog(ELResolverStatistics.class);
+   
+   private String objectName = "org.jboss.seam:type=ELResolverStatistics";
+   
+   private ObjectName registeredName;
+   
+   private Init init;
+   
+   @Create
+   public void create()
+   {
+      init = Init.instance();
+      try
+      {
+         ObjectName name = new ObjectName(objectName);
+         getMBeanServer().registerMBean( new StandardMBean(this, ELResolverStatisticsMBean.class), name );
+         registeredName = name;
+      }
+      catch (Exception e)
+      {
+         log.warn("Could not register MBean " + objectName + ": " + e.getMessage());
+      }
+   }
+   
+   @Destroy
+   public void destroy()
+   {
+      if (registeredName!=null)
+      {
+         try
+         {
+            getMBeanServer().unregisterMBean(registeredName);
+         }
+         catch (Exception e)
+         {
+            log.warn("Could not unregister MBean " + registeredName + ": " + e.getMessage());
+         }
+         registeredName = null;
+      }
+   }
+   
+   private MBeanServer getMBeanServer()
+   {
+      return ManagementFactory.getPlatformMBeanServer();
+   }
+   
+   public String getObjectName()
+   {
+      return objectName;
+   }
+   
+   /**
+    * The name under which the MBean is registered, which must be
+    * unique when several Seam applications share a JVM
+    */
+   public void setObjectName(String objectName)
+   {
+      this.objectName = objectName;
+   }
+   
+   public boolean isResolutionMemoEnabled()
+   {
+      return init.isElResolutionMemo();
+   }
+   
+   public long getResolutionMemoHits()
+   {
+      return Contexts.getResolutionMemoHits();
+   }
+   
+   public long getResolutionMemoMisses()
+   {
+      return Contexts.getResolutionMemoMisses();
+   }
+   
+   public boolean isContextLookupCacheEnabled()
+   {
+      return init.isContextLookupCache();
+   }
+   
+   public long getContextLookupCacheHits()
+   {
+      return Contexts.getLookupCacheHits();
+   }
+   
+   public long getContextLookupCacheMisses()
+   {
+      return Contexts.getLookupCacheMisses();
+   }
+   
+}
@@ -0,0 +1,14 @@
+package org.jboss.seam.jmx;
+
+/**
+ * Management interface of {@link ELResolverStatistics}
+ */
+public interface ELResolverStatisticsMBean
+{
+   public boolean isResolutionMemoEnabled();
+   public long getResolutionMemoHits();
+   public long getResolutionMemoMisses();
+   public boolean isContextLookupCacheEnabled();
+   public long getContextLookupCacheHits();
+   public long getContextLookupCacheMisses();
+}
@@ -2,9 +2,11 @@ package org.jboss.seam.navigation;
 
 import static org.jboss.seam.annotations.Install.BUILT_IN;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -12,12 +14,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.faces.application.FacesMessage;
 import javax.faces.application.FacesMessage.Severity;
@@ -28,6 +37,10 @@ import javax.faces.convert.ConverterException;
 import javax.faces.model.DataModel;
 import javax.faces.validator.ValidatorException;
 import javax.servlet.http.HttpServletRequest;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
@@ -59,10 +72,12 @@ import org.jboss.seam.log.Logging;
 import org.jboss.seam.pageflow.Pageflow;
 import org.jboss.seam.security.Identity;
 import org.jboss.seam.security.NotLoggedInException;
+import org.jboss.seam.util.BoundedCache;
 import org.jboss.seam.util.Resources;
 import org.jboss.seam.util.Strings;
 import org.jboss.seam.util.XML;
 import org.jboss.seam.web.Parameters;
+import org.jboss.seam.web.Pattern;
 
 /**
  * Holds metadata for pages defined in pages.xml, including
@@ -78,6 +93,19 @@ import org.jboss.seam.web.Parameters;
 public class Pages
 {   
    private static final LogProvider log = Logging.getLogProvider(Pages.class);
+   
+   /**
+    * Read the *.page.xml files one after another at startup
+    */
+   public static final String SEQUENTIAL = "sequential";
+   /**
+    * Read the *.page.xml files on a pool of threads at startup
+    */
+   public static final String PARALLEL = "parallel";
+   /**
+    * Read a *.page.xml file when its view is first used
+    */
+   public static final String LAZY = "lazy";
 
    private ValueExpression<String> noConversationViewId;
    private String loginViewId;
@@ -85,9 +113,20 @@ public class Pages
    private Integer httpPort;
    private Integer httpsPort;
    
+   private int pageCacheSize = 1000;
+   private String descriptorLoading = SEQUENTIAL;
+   private int descriptorLoaderThreads = Runtime.getRuntime().availableProcessors();
+   
    private Map<String, Page> pagesByViewId;  
    private Map<String, List<Page>> pageStacksByViewId;   
+   private BoundedCache<String, Page> defaultPages;
+   private BoundedCache<String, List<Page>> defaultPageStacks;
    private Map<String, ConversationIdParameter> conversations;    
+   private Map<String, FileDescriptor> pendingDescriptors;
+   private Map<String, List<Pattern>> pendingRewritePatterns;
+   private Map<String, Long> timestamps;
+   private Set<String> descriptorViewIds;
+   private volatile List<Pattern> rewritePatterns = Collections.emptyList();
    
    private String[] resources = { "/WEB-INF/pages.xml" };
  
@@ -102,6 +141,7 @@ public class Pages
             }
          } 
       );
+   private volatile WildcardTrie wildcardTrie;
 
    @Create
    public void create()
@@ -125,12 +165,23 @@ public class Pages
    
    public void initialize(Set<FileDescriptor> fileNames)
    {
-      pagesByViewId = Collections.synchronizedMap(new HashMap<String, Page>());   
-      pageStacksByViewId = Collections.synchronizedMap(new HashMap<String, List<Page>>());   
+      pagesByViewId = new ConcurrentHashMap<String, Page>();   
+      pageStacksByViewId = new ConcurrentHashMap<String, List<Page>>();   
+      defaultPages = new BoundedCache<String, Page>(pageCacheSize);
+      defaultPageStacks = new BoundedCache<String, List<Page>>(pageCacheSize);
       conversations = Collections.synchronizedMap(new HashMap<String, ConversationIdParameter>());
+      pendingDescriptors = new ConcurrentHashMap<String, FileDescriptor>();
+      pendingRewritePatterns = new ConcurrentHashMap<String, List<Pattern>>();
+      timestamps = new ConcurrentHashMap<String, Long>();
+      descriptorViewIds = new HashSet<String>();
 
       for (String resource: resources) 
       {
+         URL url = ResourceLoader.instance().getResource(resource);
+         if (url!=null)
+         {
+            timestamps.put( url.toString(), getLastModified(url) );
+         }
          InputStream stream = ResourceLoader.instance().getResourceAsStream(resource);      
          if (stream==null) 
          {
@@ -149,34 +200,346 @@ public class Pages
       {
           parsePages(fileNames);
       }
+      
+      rewritePatterns = pendingDescriptors.isEmpty() ? collectRewritePatterns() : null;
    }
    
-   private void parsePages(Set<FileDescriptor> files)
+   /**
+    * Read the *.page.xml files again after a hot redeployment,
+    * parsing only the files which changed. All files are read
+    * again if a pages.xml file changed, or a file was removed.
+    */
+   public void redeploy(Set<FileDescriptor> fileNames)
    {
-      for (FileDescriptor file : files)  
+      if ( pagesByViewId==null || isResourceChanged() || isFileRemoved(fileNames) )
+      {
+         initialize(fileNames);
+         return;
+      }
+      
+      Set<FileDescriptor> changedFiles = new HashSet<FileDescriptor>();
+      for (FileDescriptor file: fileNames)
+      {
+         Long timestamp = timestamps.get( file.getUrl().toString() );
+         if ( timestamp==null || timestamp==0 || timestamp!=getLastModified( file.getUrl() ) )
+         {
+            changedFiles.add(file);
+            String viewId = getViewId(file);
+            pagesByViewId.remove(viewId);
+            pendingDescriptors.remove(viewId);
+            pendingRewritePatterns.remove(viewId);
+         }
+      }
+      if ( !changedFiles.isEmpty() )
+      {
+         log.debug("re-reading " + changedFiles.size() + " page descriptors");
+         parsePages(changedFiles);
+         pageStacksByViewId.clear();
+         defaultPageStacks.clear();
+         defaultPages.clear();
+         rewritePatterns = pendingDescriptors.isEmpty() ? collectRewritePatterns() : null;
+      }
+   }
+   
+   private boolean isResourceChanged()
+   {
+      for (String resource: resources)
+      {
+         URL url = ResourceLoader.instance().getResource(resource);
+         if (url!=null)
+         {
+            Long timestamp = timestamps.get( url.toString() );
+            if ( timestamp==null || timestamp==0 || timestamp!=getLastModified(url) )
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+   
+   private boolean isFileRemoved(Set<FileDescriptor> files)
+   {
+      Set<String> viewIds = new HashSet<String>();
+      for (FileDescriptor file: files)
+      {
+         viewIds.add( getViewId(file) );
+      }
+      return !viewIds.containsAll( descriptorViewIds );
+   }
+   
+   /**
+    * The last modification time of a file, or 0 if it is not known
+    */
+   private static long getLastModified(URL url)
+   {
+      if ( "file".equals( url.getProtocol() ) )
       {
-         String fileName = file.getName();
-         String viewId = "/" + fileName.substring(0,fileName.length()-".page.xml".length()) + ".xhtml"; // needs more here
-         
-         InputStream stream = null;
          try
          {
-            stream = file.getUrl().openStream();
+            return new File( url.toURI() ).lastModified();
          }
-         catch (IOException exception)
+         catch (URISyntaxException use) {}
+         catch (IllegalArgumentException iae) {}
+      }
+      return 0;
+   }
+   
+   private static String getViewId(FileDescriptor file)
+   {
+      String fileName = file.getName();
+      return "/" + fileName.substring(0,fileName.length()-".page.xml".length()) + ".xhtml"; // needs more here
+   }
+   
+   private void parsePages(Set<FileDescriptor> files)
+   {
+      for (FileDescriptor file: files)
+      {
+         timestamps.put( file.getUrl().toString(), getLastModified( file.getUrl() ) );
+         descriptorViewIds.add( getViewId(file) );
+      }
+      
+      if ( LAZY.equals(descriptorLoading) )
+      {
+         for (FileDescriptor file: files)
          {
-            // No-op
+            pendingDescriptors.put( getViewId(file), file );
          }
-         if (stream != null) 
+         log.debug("indexed " + files.size() + " page descriptors");
+      }
+      else if ( PARALLEL.equals(descriptorLoading) && descriptorLoaderThreads>1 && files.size()>1 )
+      {
+         parsePagesInParallel( new ArrayList<FileDescriptor>(files) );
+      }
+      else
+      {
+         for (FileDescriptor file : files)  
          {
-            log.debug("reading pages.xml file: " + fileName);
-            try {
-                parse(stream,viewId);
-            } finally {
-                Resources.closeStream(stream);
+            Element root = readPageDescriptor(file);
+            if (root!=null)
+            {
+               parse( root, getViewId(file) );
             }
-         } 
-     }
+         }
+      }
+   }
+   
+   /**
+    * Read the documents on a pool of threads, and then create the
+    * pages in this thread, in the order of the files, since that
+    * needs the Seam contexts
+    */
+   private void parsePagesInParallel(List<FileDescriptor> files)
+   {
+      final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      ExecutorService executor = Executors.newFixedThreadPool( Math.min( descriptorLoaderThreads, files.size() ) );
+      try
+      {
+         List<Future<Element>> roots = new ArrayList<Future<Element>>( files.size() );
+         for (final FileDescriptor file: files)
+         {
+            roots.add( executor.submit( new Callable<Element>()
+            {
+               public Element call() throws Exception
+               {
+                  Thread thread = Thread.currentThread();
+                  ClassLoader original = thread.getContextClassLoader();
+                  thread.setContextClassLoader(classLoader);
+                  try
+                  {
+                     return readPageDescriptor(file);
+                  }
+                  finally
+                  {
+                     thread.setContextClassLoader(original);
+                  }
+               }
+            } ) );
+         }
+         for (int i=0; i<files.size(); i++)
+         {
+            Element root = roots.get(i).get();
+            if (root!=null)
+            {
+               parse( root, getViewId( files.get(i) ) );
+            }
+         }
+      }
+      catch (ExecutionException ee)
+      {
+         if ( ee.getCause() instanceof RuntimeException )
+         {
+            throw (RuntimeException) ee.getCause();
+         }
+         throw new RuntimeException( ee.getCause() );
+      }
+      catch (InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("interrupted while reading page descriptors", ie);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+   
+   /**
+    * Read a viewId.page.xml file, or return null if it can't be opened
+    */
+   private static Element readPageDescriptor(FileDescriptor file)
+   {
+      InputStream stream = null;
+      try
+      {
+         stream = file.getUrl().openStream();
+      }
+      catch (IOException exception)
+      {
+         // No-op
+      }
+      if (stream == null)
+      {
+         return null;
+      }
+      log.debug("reading pages.xml file: " + file.getName());
+      try {
+          return getDocumentRoot(stream);
+      } finally {
+          Resources.closeStream(stream);
+      }
+   }
+   
+   /**
+    * Parse the page descriptor of a view which was not read at
+    * startup, so that the page appears when it is complete. A
+    * descriptor which cannot be parsed is logged and dropped, 
+    * rather than read again by every request for the view.
+    */
+   private Page loadPendingPage(String viewId)
+   {
+      FileDescriptor file = pendingDescriptors.get(viewId);
+      if (file==null)
+      {
+         return null;
+      }
+      synchronized (file)
+      {
+         if ( pendingDescriptors.get(viewId)==file )
+         {
+            try
+            {
+               Element root = readPageDescriptor(file);
+               if (root!=null)
+               {
+                  parse(root, viewId);
+               }
+            }
+            catch (RuntimeException re)
+            {
+               log.error("could not parse page descriptor: " + file.getName(), re);
+            }
+            finally
+            {
+               pendingDescriptors.remove(viewId);
+               pendingRewritePatterns.remove(viewId);
+            }
+         }
+      }
+      return pagesByViewId.get(viewId);
+   }
+   
+   /**
+    * The rewrite patterns of the parsed pages, and of the page 
+    * descriptors which were not parsed yet. Those are found by a
+    * scan of the rewrite elements of each descriptor, which is 
+    * remembered until the descriptor is parsed.
+    */
+   private List<Pattern> collectRewritePatterns()
+   {
+      List<Pattern> patterns = new ArrayList<Pattern>();
+      // a descriptor may be parsed meanwhile, so look at the
+      // pending ones first, and skip their pages
+      Set<String> pendingViewIds = new HashSet<String>();
+      for ( Map.Entry<String, FileDescriptor> entry: pendingDescriptors.entrySet() )
+      {
+         String viewId = entry.getKey();
+         List<Pattern> scanned = pendingRewritePatterns.get(viewId);
+         if (scanned==null)
+         {
+            scanned = scanRewritePatterns( entry.getValue(), viewId );
+            pendingRewritePatterns.put(viewId, scanned);
+         }
+         pendingViewIds.add(viewId);
+         patterns.addAll(scanned);
+      }
+      for (Page page: pagesByViewId.values())
+      {
+         if ( !pendingViewIds.contains( page.getViewId() ) )
+         {
+            patterns.addAll( page.getRewritePatterns() );
+         }
+      }
+      return Collections.unmodifiableList(patterns);
+   }
+   
+   /**
+    * Read the rewrite patterns of a viewId.page.xml file, without
+    * parsing the rest of the page
+    */
+   private static List<Pattern> scanRewritePatterns(FileDescriptor file, String viewId)
+   {
+      List<Pattern> patterns = new ArrayList<Pattern>();
+      InputStream stream = null;
+      try
+      {
+         stream = file.getUrl().openStream();
+         XMLInputFactory factory = XMLInputFactory.newInstance();
+         factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+         factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+         XMLStreamReader reader = factory.createXMLStreamReader(stream);
+         try
+         {
+            int depth = 0;
+            while ( reader.hasNext() )
+            {
+               int event = reader.next();
+               if (event==XMLStreamConstants.START_ELEMENT)
+               {
+                  depth++;
+                  if ( depth==2 && "rewrite".equals( reader.getLocalName() ) )
+                  {
+                     String pattern = reader.getAttributeValue(null, "pattern");
+                     if (pattern!=null)
+                     {
+                        patterns.add( new Pattern(viewId, pattern) );
+                     }
+                  }
+               }
+               else if (event==XMLStreamConstants.END_ELEMENT)
+               {
+                  depth--;
+               }
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      catch (IOException ioe)
+      {
+         // No-op, as in readPageDescriptor()
+      }
+      catch (XMLStreamException xse)
+      {
+         log.warn("could not read rewrite patterns of page descriptor: " + file.getName(), xse);
+      }
+      finally
+      {
+         Resources.closeStream(stream);
+      }
+      return patterns;
    }
    
    /**
@@ -234,18 +597,22 @@ public class Pages
    }
    
    /**
-    * Create a new default Page object for a JSF view id
+    * Create a new default Page object for a JSF view id which is
+    * not declared in any pages.xml file
     */
    private Page createPage(String viewId)
    {
-      Page result = new Page(viewId);
-      pagesByViewId.put(viewId, result);
-      return result;
+      return defaultPages.put( viewId, new Page(viewId) );
    }
    
    private Page getCachedPage(String viewId)
    {
-      return pagesByViewId.get(viewId);
+      Page result = pagesByViewId.get(viewId);
+      if ( result==null && !pendingDescriptors.isEmpty() )
+      {
+         result = loadPendingPage(viewId);
+      }
+      return result==null ? defaultPages.get(viewId) : result;
    }
    
    /**
@@ -256,11 +623,26 @@ public class Pages
     */
    protected List<Page> getPageStack(String viewId)
    {
+      if (viewId==null)
+      {
+         return createPageStack(viewId);
+      }
       List<Page> stack = pageStacksByViewId.get(viewId);
       if (stack==null)
       {
-         stack = createPageStack(viewId);
-         pageStacksByViewId.put(viewId, stack);
+         stack = defaultPageStacks.get(viewId);
+         if (stack==null)
+         {
+            stack = createPageStack(viewId);
+            if ( pagesByViewId.containsKey(viewId) )
+            {
+               pageStacksByViewId.put(viewId, stack);
+            }
+            else
+            {
+               stack = defaultPageStacks.put(viewId, stack);
+            }
+         }
       }
       return stack;
    }
@@ -272,12 +654,9 @@ public class Pages
       List<Page> stack = new ArrayList<Page>(1);
       if ( viewId!=null && !isDebugPage(viewId) )
       {
-         for (String wildcard: wildcardViewIds)
+         for ( String wildcard: getWildcardTrie().match(viewId) )
          {
-            if ( viewId.startsWith( wildcard.substring(0, wildcard.length()-1) ) )
-            {
-               stack.add( getPage(wildcard) );
-            }
+            stack.add( getPage(wildcard) );
          }
       }
       Page page = getPage(viewId);
@@ -285,6 +664,24 @@ public class Pages
       return stack;
    }
    
+   private WildcardTrie getWildcardTrie()
+   {
+      WildcardTrie trie = wildcardTrie;
+      if (trie==null)
+      {
+         synchronized (wildcardViewIds)
+         {
+            trie = wildcardTrie;
+            if (trie==null)
+            {
+               trie = new WildcardTrie(wildcardViewIds);
+               wildcardTrie = trie;
+            }
+         }
+      }
+      return trie;
+   }
+   
    /**
     * Call page actions, check permissions and validate the existence 
     * of a conversation for pages which require a long-running 
@@ -1074,14 +1471,6 @@ public class Pages
       } 
    }
    
-   /**
-    * Parse a viewId.page.xml file
-    */
-   private void parse(InputStream stream, String viewId)
-   {
-      parse( getDocumentRoot(stream), viewId );
-   }
-   
    /**
     * Get the root element of the document
     */
@@ -1128,10 +1517,13 @@ public class Pages
       
       if ( viewId.endsWith("*") )
       {
-         wildcardViewIds.add(viewId);
+         synchronized (wildcardViewIds)
+         {
+            wildcardViewIds.add(viewId);
+            wildcardTrie = null;
+         }
       }
       Page page = new Page(viewId);
-      pagesByViewId.put(viewId, page);
       
       parsePage(page, element, viewId);
       parseConversationControl( element, page.getConversationControl() );
@@ -1161,6 +1553,9 @@ public class Pages
       for (Element header: headers) {
          page.getHeaders().add(parseHeader(header));
       }
+      
+      //only make the page visible once it is complete
+      pagesByViewId.put(viewId, page);
    }
    
    public ConversationIdParameter getConversationIdParameter(String conversationName)
@@ -1740,8 +2135,170 @@ public class Pages
             getCurrentViewId().startsWith("/debug.");
    }
    
+   /**
+    * The view ids of the pages declared in pages.xml files, not
+    * including *.page.xml files which were not read yet
+    */
    public Collection<String> getKnownViewIds() {
        return pagesByViewId.keySet();
    }
    
+   public String getDescriptorLoading()
+   {
+      return descriptorLoading;
+   }
+   
+   /**
+    * How the *.page.xml files are read: one after another at
+    * startup (sequential, the default), on a pool of threads at
+    * startup (parallel), or each when its view is first used
+    * (lazy). When the rewrite filter is used, it needs the rewrite
+    * patterns of all the pages, so the first request scans the
+    * files which were not read yet for their rewrite elements.
+    */
+   public void setDescriptorLoading(String descriptorLoading)
+   {
+      if ( !SEQUENTIAL.equals(descriptorLoading) && !PARALLEL.equals(descriptorLoading) && !LAZY.equals(descriptorLoading) )
+      {
+         throw new IllegalArgumentException("descriptorLoading must be sequential, parallel or lazy: " + descriptorLoading);
+      }
+      this.descriptorLoading = descriptorLoading;
+   }
+   
+   public int getDescriptorLoaderThreads()
+   {
+      return descriptorLoaderThreads;
+   }
+   
+   /**
+    * The maximum number of threads which read *.page.xml files
+    * in parallel
+    */
+   public void setDescriptorLoaderThreads(int descriptorLoaderThreads)
+   {
+      this.descriptorLoaderThreads = descriptorLoaderThreads;
+   }
+   
+   /**
+    * The number of *.page.xml files which were not read yet
+    */
+   public int getPendingDescriptorCount()
+   {
+      return pendingDescriptors==null ? 0 : pendingDescriptors.size();
+   }
+   
+   public int getPageCacheSize()
+   {
+      return pageCacheSize;
+   }
+   
+   /**
+    * The number of view ids without a page declaration for which
+    * a default page and page stack are kept, 0 to keep none
+    */
+   public void setPageCacheSize(int pageCacheSize)
+   {
+      this.pageCacheSize = pageCacheSize;
+   }
+   
+   /**
+    * The number of default pages currently cached
+    */
+   public int getDefaultPageCount()
+   {
+      return defaultPages==null ? 0 : defaultPages.size();
+   }
+   
+   /**
+    * The number of default pages dropped from the cache to make
+    * room for others
+    */
+   public long getDefaultPageEvictions()
+   {
+      return defaultPages==null ? 0 : defaultPages.getEvictions();
+   }
+   
+   public double getDefaultPageCacheHitRatio()
+   {
+      return defaultPages==null ? 0 : defaultPages.getHitRatio();
+   }
+   
+   /**
+    * The rewrite patterns of all pages, collected when the pages.xml
+    * files are read. A new list is created every time the files are
+    * read again. The rewrite patterns of any *.page.xml files which 
+    * were not read yet are collected on the first call, without 
+    * reading the rest of the files.
+    */
+   public List<Pattern> getRewritePatterns() {
+       List<Pattern> patterns = rewritePatterns;
+       if (patterns==null)
+       {
+          patterns = collectRewritePatterns();
+          rewritePatterns = patterns;
+       }
+       return patterns;
+   }
+   
+   /**
+    * The prefixes of the wildcard view ids, in a trie of their
+    * characters, so that the wildcards matching a view id are
+    * found in one pass over the view id, shortest first
+    */
+   private static class WildcardTrie
+   {
+      private final Node root = new Node();
+      
+      WildcardTrie(Collection<String> wildcardViewIds)
+      {
+         for (String wildcard: wildcardViewIds)
+         {
+            Node node = root;
+            for (int i=0; i<wildcard.length()-1; i++)
+            {
+               node = node.getOrCreateChild( wildcard.charAt(i) );
+            }
+            node.wildcard = wildcard;
+         }
+      }
+      
+      List<String> match(String viewId)
+      {
+         List<String> result = Collections.emptyList();
+         Node node = root;
+         for (int i=0; node!=null; i++)
+         {
+            if (node.wildcard!=null)
+            {
+               if ( result.isEmpty() ) result = new ArrayList<String>(2);
+               result.add(node.wildcard);
+            }
+            if ( i==viewId.length() || node.children==null ) break;
+            node = node.children.get( viewId.charAt(i) );
+         }
+         return result;
+      }
+      
+      private static class Node
+      {
+         Map<Character, Node> children;
+         String wildcard;
+         
+         Node getOrCreateChild(char c)
+         {
+            if (children==null)
+            {
+               children = new HashMap<Character, Node>(4);
+            }
+            Node child = children.get(c);
+            if (child==null)
+            {
+               child = new Node();
+               children.put(c, child);
+            }
+            return child;
+         }
+      }
+   }
+   
 }
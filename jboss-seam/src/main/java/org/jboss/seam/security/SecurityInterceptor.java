@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.jboss.seam.Component;
 import org.jboss.seam.annotations.intercept.AroundInvoke;
 import org.jboss.seam.annotations.intercept.Interceptor;
 import org.jboss.seam.annotations.intercept.InterceptorType;
@@ -17,6 +18,7 @@ import org.jboss.seam.annotations.security.RoleCheck;
 import org.jboss.seam.async.AsynchronousInterceptor;
 import org.jboss.seam.intercept.AbstractInterceptor;
 import org.jboss.seam.intercept.InvocationContext;
+import org.jboss.seam.intercept.MethodMetadata;
 import org.jboss.seam.util.Strings;
 
 /**
@@ -30,13 +32,7 @@ public class SecurityInterceptor extends AbstractInterceptor implements Serializ
 {
    private static final long serialVersionUID = -6567750187000766925L;
    
-   /**
-    * You may encounter a JVM bug where the field initializer is not evaluated for a transient field after deserialization.
-    * @see "http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6252102"
-    */
-   private transient volatile Map<Method,Restriction> restrictions = new HashMap<Method,Restriction>();
-   
-   private class Restriction
+   private static class Restriction
    {
       private String expression;
       
@@ -163,124 +159,123 @@ public class SecurityInterceptor extends AbstractInterceptor implements Serializ
       return invocation.proceed();
    }
 
-   private Restriction getRestriction(Method interfaceMethod) throws Exception
+   private static final MethodMetadata.Entry<Restriction> RESTRICTION = new MethodMetadata.Entry<Restriction>()
    {
-      // see field declaration as to why this is done
-      if (restrictions == null)
+      public Restriction create(Component component, Method interfaceMethod)
       {
-         synchronized(this)
+         try
+         {
+            return createRestriction(component, interfaceMethod);
+         }
+         catch (Exception e)
          {
-            restrictions = new HashMap<Method, Restriction>();
+            throw new IllegalStateException("could not determine the restrictions of method: " + interfaceMethod.getName(), e);
          }
       }
+   };
+
+   private Restriction getRestriction(Method interfaceMethod)
+   {
+      return getComponent().getMethodMetadata(interfaceMethod).get(RESTRICTION);
+   }
+
+   private static Restriction createRestriction(Component component, Method interfaceMethod) throws Exception
+   {
+      Restriction restriction = null;
+      
+      Method method = component.getBeanClass().getMethod( 
+            interfaceMethod.getName(), interfaceMethod.getParameterTypes() );      
       
-      if (!restrictions.containsKey(interfaceMethod))
+      Restrict restrict = null;
+      
+      if ( method.isAnnotationPresent(Restrict.class) )
+      {
+         restrict = method.getAnnotation(Restrict.class);
+      }
+      else if ( component.getBeanClass().isAnnotationPresent(Restrict.class) )
       {
-         synchronized(restrictions)
+         if ( !component.isLifecycleMethod(method) )
          {
-            // FIXME this logic should be abstracted rather than sitting in the middle of this interceptor
-            if (!restrictions.containsKey(interfaceMethod))
-            {  
-               Restriction restriction = null;
-               
-               Method method = getComponent().getBeanClass().getMethod( 
-                     interfaceMethod.getName(), interfaceMethod.getParameterTypes() );      
-               
-               Restrict restrict = null;
-               
-               if ( method.isAnnotationPresent(Restrict.class) )
-               {
-                  restrict = method.getAnnotation(Restrict.class);
-               }
-               else if ( getComponent().getBeanClass().isAnnotationPresent(Restrict.class) )
-               {
-                  if ( !getComponent().isLifecycleMethod(method) )
-                  {
-                     restrict = getComponent().getBeanClass().getAnnotation(Restrict.class); 
-                  }
-               }
-               
-               if (restrict != null)
-               {
-                  if (restriction == null) restriction = new Restriction();
-                  
-                  if ( Strings.isEmpty(restrict.value()) )
-                  {
-                     restriction.setPermissionTarget(getComponent().getName());
-                     restriction.setPermissionAction(method.getName());
-                  }
-                  else
-                  {
-                     restriction.setExpression(restrict.value());
-                  }
-               }
-               
-               for (Annotation annotation : method.getDeclaringClass().getAnnotations())
+            restrict = component.getBeanClass().getAnnotation(Restrict.class); 
+         }
+      }
+      
+      if (restrict != null)
+      {
+         if (restriction == null) restriction = new Restriction();
+         
+         if ( Strings.isEmpty(restrict.value()) )
+         {
+            restriction.setPermissionTarget(component.getName());
+            restriction.setPermissionAction(method.getName());
+         }
+         else
+         {
+            restriction.setExpression(restrict.value());
+         }
+      }
+      
+      for (Annotation annotation : method.getDeclaringClass().getAnnotations())
+      {
+         if (annotation.annotationType().isAnnotationPresent(RoleCheck.class))
+         {
+            if (restriction == null) restriction = new Restriction();
+            restriction.addRoleRestriction(annotation.annotationType().getSimpleName().toLowerCase());
+         }
+      }
+      
+      for (Annotation annotation : method.getAnnotations())
+      {
+         if (annotation.annotationType().isAnnotationPresent(PermissionCheck.class))
+         {
+            PermissionCheck permissionCheck = annotation.annotationType().getAnnotation(
+                  PermissionCheck.class);
+            
+            Method valueMethod = null;
+            for (Method m : annotation.annotationType().getDeclaredMethods())
+            {
+               valueMethod = m;
+               break;
+            }
+            
+            if (valueMethod != null)
+            {                        
+               if (restriction == null) restriction = new Restriction();
+               Object target = valueMethod.invoke(annotation);
+               if (!target.equals(void.class))
                {
-                  if (annotation.annotationType().isAnnotationPresent(RoleCheck.class))
-                  {
-                     if (restriction == null) restriction = new Restriction();
-                     restriction.addRoleRestriction(annotation.annotationType().getSimpleName().toLowerCase());
-                  }
+                  restriction.addMethodRestriction(target, 
+                        getPermissionAction(permissionCheck, annotation));
                }
-               
-               for (Annotation annotation : method.getAnnotations())
-               {
-                  if (annotation.annotationType().isAnnotationPresent(PermissionCheck.class))
-                  {
-                     PermissionCheck permissionCheck = annotation.annotationType().getAnnotation(
-                           PermissionCheck.class);
-                     
-                     Method valueMethod = null;
-                     for (Method m : annotation.annotationType().getDeclaredMethods())
-                     {
-                        valueMethod = m;
-                        break;
-                     }
-                     
-                     if (valueMethod != null)
-                     {                        
-                        if (restriction == null) restriction = new Restriction();
-                        Object target = valueMethod.invoke(annotation);
-                        if (!target.equals(void.class))
-                        {
-                           restriction.addMethodRestriction(target, 
-                                 getPermissionAction(permissionCheck, annotation));
-                        }
-                     }
-                  }
-                  if (annotation.annotationType().isAnnotationPresent(RoleCheck.class))
-                  {
-                     if (restriction == null) restriction = new Restriction();
-                     restriction.addRoleRestriction(annotation.annotationType().getSimpleName().toLowerCase());
-                  }
-               }               
-               
-               for (int i = 0; i < method.getParameterAnnotations().length; i++)
-               {
-                  Annotation[] annotations = method.getParameterAnnotations()[i]; 
-                  for (Annotation annotation : annotations)
-                  {
-                     if (annotation.annotationType().isAnnotationPresent(PermissionCheck.class))
-                     {                        
-                        PermissionCheck permissionCheck = annotation.annotationType().getAnnotation(
-                              PermissionCheck.class);
-                        if (restriction == null) restriction = new Restriction();
-                        restriction.addParameterRestriction(i, 
-                              getPermissionAction(permissionCheck, annotation));                        
-                     }
-                  }
-               }                             
-               
-               restrictions.put(interfaceMethod, restriction);
-               return restriction;
+            }
+         }
+         if (annotation.annotationType().isAnnotationPresent(RoleCheck.class))
+         {
+            if (restriction == null) restriction = new Restriction();
+            restriction.addRoleRestriction(annotation.annotationType().getSimpleName().toLowerCase());
+         }
+      }               
+      
+      for (int i = 0; i < method.getParameterAnnotations().length; i++)
+      {
+         Annotation[] annotations = method.getParameterAnnotations()[i]; 
+         for (Annotation annotation : annotations)
+         {
+            if (annotation.annotationType().isAnnotationPresent(PermissionCheck.class))
+            {                        
+               PermissionCheck permissionCheck = annotation.annotationType().getAnnotation(
+                     PermissionCheck.class);
+               if (restriction == null) restriction = new Restriction();
+               restriction.addParameterRestriction(i, 
+                     getPermissionAction(permissionCheck, annotation));                        
             }
          }
       }
-      return restrictions.get(interfaceMethod);      
+      
+      return restriction;
    }
    
-   private String getPermissionAction(PermissionCheck check, Annotation annotation)
+   private static String getPermissionAction(PermissionCheck check, Annotation annotation)
    {
       if (!"".equals(check.value()))
       {
@@ -296,4 +291,18 @@ public class SecurityInterceptor extends AbstractInterceptor implements Serializ
    {
       return getComponent().isSecure() && !getComponent().beanClassHasAnnotation("javax.jws.WebService");
    }
+   
+   @Override
+   public boolean isInterceptorEnabled(Method method)
+   {
+      try
+      {
+         return !"hashCode".equals( method.getName() ) && getRestriction(method)!=null;
+      }
+      catch (Exception e)
+      {
+         //let aroundInvoke() report the problem
+         return true;
+      }
+   }
 }
@@ -0,0 +1,14 @@
+package org.jboss.seam.util;
+
+/**
+ * Reads and writes a single attribute of a bean without going
+ * through reflection. Instances are generated by
+ * {@link AccessorFactory}.
+ *
+ * @see AccessorFactory
+ */
+public interface Accessor
+{
+   public Object get(Object bean);
+   public void set(Object bean, Object value);
+}
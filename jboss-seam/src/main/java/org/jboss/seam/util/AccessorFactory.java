@@ -0,0 +1,170 @@
+package org.jboss.seam.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.jboss.seam.log.LogProvider;
+import org.jboss.seam.log.Logging;
+
+/**
+ * Generates {@link Accessor} classes with javassist, so that
+ * bean attributes may be read and written with a plain field
+ * access or method call instead of reflection.
+ *
+ * The generated class is defined in the package and class loader
+ * of the class declaring the attribute, so it can see public,
+ * protected and package-private members. Private, static and final
+ * members, and attributes of primitive type, are not supported, and
+ * null is returned so that the caller can fall back to reflection.
+ */
+public class AccessorFactory
+{
+   private static final LogProvider log = Logging.getLogProvider(AccessorFactory.class);
+
+   private static final String ACCESSOR_SUFFIX = "_$$_SeamAccessor_";
+
+   private static final Map<ClassLoader, ClassPool> classPools = new WeakHashMap<ClassLoader, ClassPool>();
+
+   private static int counter;
+
+   /**
+    * Create an accessor for a field.
+    *
+    * @return the accessor, or null if the field cannot be accessed
+    *         from generated code
+    */
+   public static Accessor createAccessor(Field field)
+   {
+      Class<?> host = field.getDeclaringClass();
+      if ( field.getType().isPrimitive() || Modifier.isFinal( field.getModifiers() ) || !isAccessible(field, host) )
+      {
+         return null;
+      }
+      String target = "((" + toSourceName(host) + ") $1)." + field.getName();
+      return generate( host,
+            "return ($w) " + target + ";",
+            target + " = (" + toSourceName( field.getType() ) + ") $2;" );
+   }
+
+   /**
+    * Create an accessor for a property. Either the getter or the
+    * setter may be null, in which case the corresponding operation
+    * of the accessor throws UnsupportedOperationException.
+    *
+    * @return the accessor, or null if the property cannot be accessed
+    *         from generated code
+    */
+   public static Accessor createAccessor(Method getter, Method setter)
+   {
+      Class<?> host = getter==null ? setter.getDeclaringClass() : getter.getDeclaringClass();
+      String getBody = "throw new UnsupportedOperationException();";
+      String setBody = getBody;
+      if (getter!=null)
+      {
+         if ( getter.getParameterTypes().length!=0 || !isAccessible(getter, host) )
+         {
+            return null;
+         }
+         getBody = "return ($w) ((" + toSourceName(host) + ") $1)." + getter.getName() + "();";
+      }
+      if (setter!=null)
+      {
+         if ( setter.getParameterTypes().length!=1 || setter.getParameterTypes()[0].isPrimitive() || !isAccessible(setter, host) )
+         {
+            return null;
+         }
+         setBody = "((" + toSourceName(host) + ") $1)." + setter.getName() +
+               "((" + toSourceName( setter.getParameterTypes()[0] ) + ") $2);";
+      }
+      return generate(host, getBody, setBody);
+   }
+
+   private static boolean isAccessible(Member member, Class<?> host)
+   {
+      int modifiers = member.getModifiers();
+      if ( Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers) || Modifier.isPrivate( host.getModifiers() ) )
+      {
+         return false;
+      }
+      Class<?> declaringClass = member.getDeclaringClass();
+      if ( Modifier.isPublic(modifiers) && Modifier.isPublic( declaringClass.getModifiers() ) )
+      {
+         return true;
+      }
+      // the generated class lives in the runtime package of the host
+      return declaringClass.getClassLoader()==host.getClassLoader() &&
+            getPackageName(declaringClass).equals( getPackageName(host) );
+   }
+
+   private static synchronized Accessor generate(Class<?> host, String getBody, String setBody)
+   {
+      ClassLoader classLoader = host.getClassLoader();
+      if (classLoader==null)
+      {
+         return null;
+      }
+      try
+      {
+         if ( classLoader.loadClass( Accessor.class.getName() )!=Accessor.class )
+         {
+            // the application has its own copy of Seam
+            return null;
+         }
+         ClassPool classPool = getClassPool(classLoader);
+         CtClass accessorClass = classPool.makeClass( host.getName() + ACCESSOR_SUFFIX + counter++ );
+         accessorClass.addInterface( classPool.get( Accessor.class.getName() ) );
+         accessorClass.addConstructor( CtNewConstructor.defaultConstructor(accessorClass) );
+         accessorClass.addMethod( CtNewMethod.make("public Object get(Object bean) { " + getBody + " }", accessorClass) );
+         accessorClass.addMethod( CtNewMethod.make("public void set(Object bean, Object value) { " + setBody + " }", accessorClass) );
+         Class<?> clazz = accessorClass.toClass( classLoader, host.getProtectionDomain() );
+         accessorClass.detach();
+         return (Accessor) clazz.newInstance();
+      }
+      catch (Exception e)
+      {
+         log.debug("could not generate accessor for: " + host.getName() + ", using reflection", e);
+         return null;
+      }
+      catch (LinkageError e)
+      {
+         log.debug("could not generate accessor for: " + host.getName() + ", using reflection", e);
+         return null;
+      }
+   }
+
+   private static ClassPool getClassPool(ClassLoader classLoader)
+   {
+      ClassPool classPool = classPools.get(classLoader);
+      if (classPool==null)
+      {
+         classPool = new ClassPool(false);
+         classPool.appendClassPath( new LoaderClassPath(classLoader) );
+         classPool.appendSystemPath();
+         classPools.put(classLoader, classPool);
+      }
+      return classPool;
+   }
+
+   private static String getPackageName(Class<?> clazz)
+   {
+      String name = clazz.getName();
+      int loc = name.lastIndexOf('.');
+      return loc<0 ? "" : name.substring(0, loc);
+   }
+
+   private static String toSourceName(Class<?> clazz)
+   {
+      return clazz.isArray() ? toSourceName( clazz.getComponentType() ) + "[]" : clazz.getName();
+   }
+
+}
@@ -0,0 +1,175 @@
+package org.jboss.seam.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent cache which holds about a fixed number of entries,
+ * and counts its hits and misses.
+ *
+ * Entries are kept in two generations. New entries go into the
+ * young generation, and an entry of the old generation is copied
+ * to the young generation when it is found. When the young
+ * generation is full, it becomes the old generation, and the
+ * entries of the old generation which were not used since the
+ * last time this happened are dropped. So entries in use are
+ * never evicted, and lookups don't need any locking.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V>
+{
+
+   private final int maxSize;
+   private final int generationSize;
+   private volatile ConcurrentMap<K, V> young;
+   private volatile ConcurrentMap<K, V> old;
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+   private final AtomicLong evictions = new AtomicLong();
+
+   /**
+    * @param maxSize the maximum number of entries, 0 to cache nothing
+    */
+   public BoundedCache(int maxSize)
+   {
+      this.maxSize = maxSize;
+      this.generationSize = Math.max(1, maxSize / 2);
+      this.young = newGeneration();
+      this.old = newGeneration();
+   }
+
+   private ConcurrentMap<K, V> newGeneration()
+   {
+      return new ConcurrentHashMap<K, V>( Math.min(generationSize, 256) );
+   }
+
+   /**
+    * Get a cached value, counting a hit or a miss
+    */
+   public V get(K key)
+   {
+      V value = young.get(key);
+      if (value==null)
+      {
+         value = old.get(key);
+         if (value==null)
+         {
+            misses.incrementAndGet();
+            return null;
+         }
+         promote(key, value);
+      }
+      hits.incrementAndGet();
+      return value;
+   }
+
+   /**
+    * Cache a value, unless another thread already cached one
+    * for the key.
+    *
+    * @return the value in the cache
+    */
+   public V put(K key, V value)
+   {
+      if (maxSize<=0) return value;
+      V previous = young.putIfAbsent(key, value);
+      if (previous!=null) return previous;
+      previous = old.get(key);
+      if (previous!=null)
+      {
+         young.put(key, previous);
+         return previous;
+      }
+      rotateIfFull();
+      return value;
+   }
+
+   private void promote(K key, V value)
+   {
+      if ( young.putIfAbsent(key, value)==null )
+      {
+         rotateIfFull();
+      }
+   }
+
+   private void rotateIfFull()
+   {
+      if ( young.size()>=generationSize )
+      {
+         synchronized (this)
+         {
+            if ( young.size()>=generationSize )
+            {
+               ConcurrentMap<K, V> dropped = old;
+               old = young;
+               young = newGeneration();
+               long count = 0;
+               for ( K key: dropped.keySet() )
+               {
+                  if ( !old.containsKey(key) ) count++;
+               }
+               evictions.addAndGet(count);
+            }
+         }
+      }
+   }
+
+   public void remove(K key)
+   {
+      young.remove(key);
+      old.remove(key);
+   }
+
+   public synchronized void clear()
+   {
+      young = newGeneration();
+      old = newGeneration();
+   }
+
+   /**
+    * The approximate number of entries
+    */
+   public int size()
+   {
+      return young.size() + old.size();
+   }
+
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   public long getMisses()
+   {
+      return misses.get();
+   }
+
+   /**
+    * The number of entries which were dropped to make room for
+    * others
+    */
+   public long getEvictions()
+   {
+      return evictions.get();
+   }
+
+   /**
+    * The proportion of lookups which found a value, or 0 if
+    * there were none
+    */
+   public double getHitRatio()
+   {
+      long hitCount = hits.get();
+      long total = hitCount + misses.get();
+      return total==0 ? 0 : (double) hitCount / total;
+   }
+
+}
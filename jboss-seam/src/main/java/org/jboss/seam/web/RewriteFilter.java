@@ -3,8 +3,7 @@ package org.jboss.seam.web;
 import static org.jboss.seam.ScopeType.APPLICATION;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.FilterChain;
@@ -23,7 +22,6 @@ import org.jboss.seam.annotations.intercept.BypassInterceptors;
 import org.jboss.seam.annotations.web.Filter;
 import org.jboss.seam.log.LogProvider;
 import org.jboss.seam.log.Logging;
-import org.jboss.seam.navigation.Page;
 import org.jboss.seam.navigation.Pages;
 
 @Scope(APPLICATION)
@@ -38,6 +36,8 @@ public class RewriteFilter
 
     private String viewMapping;
     
+    private volatile RewriteRouter router;
+    
     
     public void doFilter(ServletRequest request, 
                          ServletResponse response, 
@@ -45,18 +45,18 @@ public class RewriteFilter
         throws IOException, 
                ServletException 
     {
-        List<Pattern> allPatterns = getAllPatterns();
+        RewriteRouter currentRouter = getRouter();
         
         boolean done = false;
         
         if (request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
             response = new RewritingResponse((HttpServletRequest) request,
                     (HttpServletResponse)response,
-                    allPatterns);
+                    currentRouter);
             
             done = process((HttpServletRequest) request, 
                            (HttpServletResponse) response,
-                            allPatterns);
+                            currentRouter);
         }
                 
        if (!done) {
@@ -65,19 +65,25 @@ public class RewriteFilter
     }
     
     
-    @SuppressWarnings("unchecked")
     public boolean process(HttpServletRequest request, 
                         HttpServletResponse response, List<Pattern> patterns)
         throws IOException, 
                ServletException 
+    {
+        return process(request, response, new RewriteRouter(patterns, null));
+    }
+    
+    public boolean process(HttpServletRequest request, 
+                        HttpServletResponse response, RewriteRouter router)
+        throws IOException, 
+               ServletException 
     {
         String fullPath = request.getRequestURI();
         //log.debug("incoming URL is " + fullPath);
-        //log.debug("known patterns are " + patterns);
 
         String localPath = strip(fullPath, request.getContextPath());
        
-        Rewrite rewrite = matchPatterns(localPath, patterns);
+        Rewrite rewrite = router.matchIncoming(localPath);
         if (rewrite!=null) {
             String newPath = rewrite.rewrite();
             
@@ -104,16 +110,6 @@ public class RewriteFilter
     }
 
 
-    private Rewrite matchPatterns(String localPath, List<Pattern> patterns) {
-        for (Pattern pattern: patterns) {
-            Rewrite rewrite = pattern.matchIncoming(localPath);
-            if (rewrite!=null && rewrite.isMatch()) {
-                return rewrite;
-            }
-        }
-        return null;
-    }
-
     private String strip(String fullPath, String contextPath) {
         if (fullPath.startsWith(contextPath)) {
             return fullPath.substring(contextPath.length());
@@ -123,27 +119,27 @@ public class RewriteFilter
     }
     
     
-    private List<Pattern> getAllPatterns() {
-        List<Pattern> allPatterns = new ArrayList<Pattern>();
+    /**
+     * The router for the rewrite patterns of Pages, which is
+     * compiled again when the pages.xml files are read again
+     */
+    private RewriteRouter getRouter() {
+        List<Pattern> allPatterns;
         
         Pages pages = (Pages) getServletContext().getAttribute(Seam.getComponentName(Pages.class));
         if (pages != null) {
-            Collection<String> ids = pages.getKnownViewIds();
-
-            for (String id: ids) {
-                 Page page = pages.getPage(id);
-                 allPatterns.addAll(page.getRewritePatterns());
-            }
+            allPatterns = pages.getRewritePatterns();
         } else {
             log.warn("Pages is null for incoming request!");
+            allPatterns = Collections.emptyList();
         }
         
-        ServletMapping mapping = new ServletMapping(getViewMapping());
-        for (Pattern pattern: allPatterns) {
-            pattern.setViewMapping(mapping);
+        RewriteRouter currentRouter = router;
+        if (currentRouter == null || currentRouter.getPatterns() != allPatterns) {
+            currentRouter = new RewriteRouter(allPatterns, new ServletMapping(getViewMapping()));
+            router = currentRouter;
         }
-        
-        return allPatterns;
+        return currentRouter;
     }
 
 
@@ -156,6 +152,7 @@ public class RewriteFilter
    public void setViewMapping(String viewMapping)
    {
       this.viewMapping = viewMapping;
+      this.router = null;
    }
 }
 
@@ -0,0 +1,310 @@
+package org.jboss.seam.web;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rewrite patterns of all pages, indexed so that a URL is
+ * only tested against the patterns which could match it.
+ *
+ * Incoming paths are looked up in a trie of the '/' separated
+ * segments of the patterns, where a segment with a {parameter}
+ * matches any path segment. Outgoing URLs are looked up by the
+ * view id they are mapped to. The candidates are then tried in
+ * the order of the patterns, so the first pattern which matches
+ * wins, as if every pattern were tried in turn.
+ *
+ * @see RewriteFilter
+ */
+public class RewriteRouter
+{
+   private static final int[] NO_PATTERNS = {};
+
+   private final List<Pattern> patterns;
+   private final ServletMapping viewMapping;
+
+   private final Node root = new Node();
+   private int[] unindexedIncoming = NO_PATTERNS;
+   private final Map<String, int[]> outgoing = new HashMap<String, int[]>();
+   private final boolean outgoingIndexed;
+
+   /**
+    * @param patterns the rewrite patterns, in order of precedence
+    * @param viewMapping the mapping of the JSF servlet, which is set
+    *        on every pattern, or null if the patterns already have one
+    */
+   public RewriteRouter(List<Pattern> patterns, ServletMapping viewMapping)
+   {
+      this.patterns = patterns;
+      this.viewMapping = viewMapping;
+      this.outgoingIndexed = viewMapping!=null;
+      for (int i=0; i<patterns.size(); i++)
+      {
+         Pattern pattern = patterns.get(i);
+         if (viewMapping!=null)
+         {
+            pattern.setViewMapping(viewMapping);
+         }
+         indexIncoming(pattern, i);
+         if (outgoingIndexed)
+         {
+            String key = viewMapping.getViewIdKey(pattern.view);
+            if (key!=null)
+            {
+               outgoing.put( key, append( outgoing.get(key), i ) );
+            }
+         }
+      }
+   }
+
+   public List<Pattern> getPatterns()
+   {
+      return patterns;
+   }
+
+   public ServletMapping getViewMapping()
+   {
+      return viewMapping;
+   }
+
+   /**
+    * The rewrite of the first pattern which matches an incoming
+    * path, or null
+    *
+    * @param path a path relative to the context path
+    */
+   public Rewrite matchIncoming(String path)
+   {
+      Candidates candidates = new Candidates();
+      candidates.add(unindexedIncoming);
+      collect( root, split(path), 0, candidates );
+      candidates.sort();
+      for (int i=0; i<candidates.size; i++)
+      {
+         Rewrite rewrite = patterns.get( candidates.indexes[i] ).matchIncoming(path);
+         if (rewrite!=null)
+         {
+            return rewrite;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * The rewrite of the first pattern which matches an outgoing
+    * URL, or null
+    *
+    * @param path a path relative to the context path, which may
+    *        have a query string
+    */
+   public Rewrite matchOutgoing(String path)
+   {
+      if (!outgoingIndexed)
+      {
+         for (Pattern pattern: patterns)
+         {
+            Rewrite rewrite = pattern.matchOutgoing(path);
+            if (rewrite!=null)
+            {
+               return rewrite;
+            }
+         }
+         return null;
+      }
+
+      int queryPos = path.indexOf('?');
+      String base = queryPos == -1 ? path : path.substring(0, queryPos);
+      String key = viewMapping.getURLKey(base);
+      int[] candidates = key==null ? null : outgoing.get(key);
+      if (candidates!=null)
+      {
+         for (int index: candidates)
+         {
+            Rewrite rewrite = patterns.get(index).matchOutgoing(path);
+            if (rewrite!=null)
+            {
+               return rewrite;
+            }
+         }
+      }
+      return null;
+   }
+
+   private void indexIncoming(Pattern pattern, int index)
+   {
+      List<String> segments = parseSegments(pattern.pattern);
+      if (segments==null)
+      {
+         unindexedIncoming = append(unindexedIncoming, index);
+      }
+      else
+      {
+         Node node = root;
+         for (String segment: segments)
+         {
+            node = segment==null ? node.getOrCreateWildcard() : node.getOrCreateChild(segment);
+         }
+         node.patterns = append(node.patterns, index);
+      }
+   }
+
+   private static void collect(Node node, List<String> segments, int depth, Candidates result)
+   {
+      if ( depth==segments.size() )
+      {
+         result.add(node.patterns);
+         return;
+      }
+      if (node.children!=null)
+      {
+         Node child = node.children.get( segments.get(depth) );
+         if (child!=null)
+         {
+            collect(child, segments, depth+1, result);
+         }
+      }
+      if (node.wildcard!=null)
+      {
+         collect(node.wildcard, segments, depth+1, result);
+      }
+   }
+
+   /**
+    * The segments of a pattern, with null for a segment which has
+    * a parameter, or null if the pattern can't be indexed, because
+    * a parameter would span several segments, or the braces are
+    * not balanced
+    */
+   static List<String> parseSegments(String pattern)
+   {
+      List<String> segments = new ArrayList<String>();
+      int start = 0;
+      boolean inParameter = false;
+      boolean hasParameter = false;
+      for (int i=0; i<pattern.length(); i++)
+      {
+         char c = pattern.charAt(i);
+         if (c=='{')
+         {
+            if (inParameter) return null;
+            inParameter = true;
+            hasParameter = true;
+         }
+         else if (c=='}')
+         {
+            if (!inParameter) return null;
+            inParameter = false;
+         }
+         else if (c=='/')
+         {
+            if (inParameter) return null;
+            segments.add( hasParameter ? null : pattern.substring(start, i) );
+            start = i+1;
+            hasParameter = false;
+         }
+      }
+      if (inParameter) return null;
+      segments.add( hasParameter ? null : pattern.substring(start) );
+      return segments;
+   }
+
+   /**
+    * The '/' separated segments of an incoming path, without its
+    * query string, including empty ones
+    */
+   private static List<String> split(String path)
+   {
+      int queryPos = path.indexOf('?');
+      if (queryPos>=0) path = path.substring(0, queryPos);
+      List<String> segments = new ArrayList<String>(8);
+      int start = 0;
+      int pos;
+      while ( (pos = path.indexOf('/', start))>=0 )
+      {
+         segments.add( path.substring(start, pos) );
+         start = pos+1;
+      }
+      segments.add( path.substring(start) );
+      return segments;
+   }
+
+   private static int[] append(int[] array, int value)
+   {
+      if (array==null)
+      {
+         return new int[] { value };
+      }
+      int[] result = new int[array.length+1];
+      System.arraycopy(array, 0, result, 0, array.length);
+      result[array.length] = value;
+      return result;
+   }
+
+   /**
+    * The indexes of the patterns which may match a path
+    */
+   private static final class Candidates
+   {
+      int[] indexes = NO_PATTERNS;
+      int size;
+
+      void add(int[] more)
+      {
+         if (more.length==0) return;
+         if ( size+more.length>indexes.length )
+         {
+            int[] grown = new int[ Math.max( size+more.length, indexes.length*2 ) ];
+            System.arraycopy(indexes, 0, grown, 0, size);
+            indexes = grown;
+         }
+         System.arraycopy(more, 0, indexes, size, more.length);
+         size += more.length;
+      }
+
+      void sort()
+      {
+         if (size>1) Arrays.sort(indexes, 0, size);
+      }
+   }
+
+   private static final class Node
+   {
+      Map<String, Node> children;
+      Node wildcard;
+      int[] patterns = NO_PATTERNS;
+
+      Node getOrCreateChild(String segment)
+      {
+         if (children==null)
+         {
+            children = new HashMap<String, Node>(4);
+         }
+         Node child = children.get(segment);
+         if (child==null)
+         {
+            child = new Node();
+            children.put(segment, child);
+         }
+         return child;
+      }
+
+      Node getOrCreateWildcard()
+      {
+         if (wildcard==null)
+         {
+            wildcard = new Node();
+         }
+         return wildcard;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "RewriteRouter(" + patterns.size() + " patterns)";
+   }
+
+}
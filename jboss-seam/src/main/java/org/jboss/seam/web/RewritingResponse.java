@@ -1,5 +1,6 @@
 package org.jboss.seam.web;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 import java.net.*;
@@ -18,16 +19,23 @@ public class RewritingResponse
     private static LogProvider log = Logging.getLogProvider(RewritingResponse.class);
 
     private HttpServletRequest request;
-    private Collection<Pattern> patterns;
+    private RewriteRouter router;
 
     public RewritingResponse(HttpServletRequest request, 
             HttpServletResponse response, 
             Collection<Pattern> patterns) 
+    {
+        this(request, response, new RewriteRouter(new ArrayList<Pattern>(patterns), null));
+    }   
+
+    public RewritingResponse(HttpServletRequest request, 
+            HttpServletResponse response, 
+            RewriteRouter router) 
     {
         super(response);
 
-        this.request  = request;
-        this.patterns = patterns;   
+        this.request = request;
+        this.router  = router;   
     }   
 
     @Override
@@ -81,11 +89,9 @@ public class RewritingResponse
         String path = originalPath.startsWith(contextPath) ? 
                       originalPath.substring(contextPath.length()) : originalPath;
                       
-        for (Pattern pattern: patterns) {
-            Rewrite rewrite = pattern.matchOutgoing(path);
-            if (rewrite != null) {
-                return request.getContextPath() + rewrite.rewrite();
-            }
+        Rewrite rewrite = router.matchOutgoing(path);
+        if (rewrite != null) {
+            return request.getContextPath() + rewrite.rewrite();
         }
 
         return originalPath;
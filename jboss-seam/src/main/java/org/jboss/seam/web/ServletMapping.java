@@ -47,5 +47,33 @@ public class ServletMapping {
         
         return false;        
     }
+    
+    /**
+     * A key such that isMapped(baseURL, viewId) is only true 
+     * if getURLKey(baseURL) equals getViewIdKey(viewId), or 
+     * null if the view is never mapped
+     */
+    String getViewIdKey(String viewId)
+    {
+        if (mapping.startsWith("*.")) {
+            return stripExtension(viewId);
+        } else if (mapping.endsWith("/*")) {
+            return mapping.substring(0,mapping.length()-2) + viewId;
+        }
+        return null;
+    }
+    
+    /**
+     * @see #getViewIdKey(String)
+     */
+    String getURLKey(String baseURL)
+    {
+        if (mapping.startsWith("*.")) {
+            return stripExtension(baseURL);
+        } else if (mapping.endsWith("/*")) {
+            return baseURL;
+        }
+        return null;
+    }
 
 }
@@ -0,0 +1,82 @@
+package org.jboss.seam.test.unit;
+
+import org.jboss.seam.util.Accessor;
+import org.jboss.seam.util.AccessorFactory;
+import org.testng.annotations.Test;
+
+public class AccessorFactoryTest
+{
+
+   public static class Bean
+   {
+      public String publicField;
+      String packageField;
+      private String privateField;
+      int primitiveField;
+      private Object property;
+
+      public Object getProperty()
+      {
+         return property;
+      }
+
+      public void setProperty(Object property)
+      {
+         this.property = property;
+      }
+
+      String getPrivateField()
+      {
+         return privateField;
+      }
+   }
+
+   @Test
+   public void testFieldAccessor() throws Exception
+   {
+      Bean bean = new Bean();
+
+      Accessor accessor = AccessorFactory.createAccessor( Bean.class.getField("publicField") );
+      assert accessor!=null;
+      accessor.set(bean, "foo");
+      assert "foo".equals(bean.publicField);
+      assert "foo".equals( accessor.get(bean) );
+      accessor.set(bean, null);
+      assert bean.publicField==null;
+
+      accessor = AccessorFactory.createAccessor( Bean.class.getDeclaredField("packageField") );
+      assert accessor!=null;
+      accessor.set(bean, "bar");
+      assert "bar".equals(bean.packageField);
+
+      assert AccessorFactory.createAccessor( Bean.class.getDeclaredField("privateField") )==null;
+      assert AccessorFactory.createAccessor( Bean.class.getDeclaredField("primitiveField") )==null;
+   }
+
+   @Test
+   public void testPropertyAccessor() throws Exception
+   {
+      Bean bean = new Bean();
+
+      Accessor accessor = AccessorFactory.createAccessor(
+            Bean.class.getMethod("getProperty"),
+            Bean.class.getMethod("setProperty", Object.class)
+         );
+      assert accessor!=null;
+      accessor.set(bean, 1);
+      assert Integer.valueOf(1).equals( bean.getProperty() );
+      assert Integer.valueOf(1).equals( accessor.get(bean) );
+
+      accessor = AccessorFactory.createAccessor( Bean.class.getDeclaredMethod("getPrivateField"), null );
+      assert accessor!=null;
+      bean.privateField = "baz";
+      assert "baz".equals( accessor.get(bean) );
+      try
+      {
+         accessor.set(bean, "qux");
+         assert false;
+      }
+      catch (UnsupportedOperationException e) {}
+   }
+
+}
@@ -0,0 +1,252 @@
+package org.jboss.seam.test.unit;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.deployment.ComponentIndex;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests writing and reading the component index of a directory
+ * or archive, and that a stale index is ignored
+ */
+public class ComponentIndexTest
+{
+   private static final String CLASS_NAME = getFileName(Indexed.class);
+   private static final String UNANNOTATED_CLASS_NAME = getFileName(Unannotated.class);
+   private static final String RESOURCE_NAME = "META-INF/components.xml";
+
+   private File directory;
+
+   @BeforeMethod
+   public void createDirectory() throws IOException
+   {
+      directory = File.createTempFile("seam-index", "");
+      directory.delete();
+      directory.mkdir();
+      copyClass(CLASS_NAME);
+      copyClass(UNANNOTATED_CLASS_NAME);
+      write( new File(directory, RESOURCE_NAME), "<components/>" );
+   }
+
+   @AfterMethod
+   public void deleteDirectory()
+   {
+      delete(directory);
+   }
+
+   @Test
+   public void testDirectoryRoundTrip() throws IOException
+   {
+      ComponentIndex.create(directory).write(directory);
+      makeOlderThanIndex(directory);
+
+      ComponentIndex index = ComponentIndex.read(directory);
+      assert index!=null;
+      assert index.getClasses().keySet().equals( Collections.singleton(CLASS_NAME) );
+      assert index.getClasses().get(CLASS_NAME).contains( Name.class.getName() );
+      assert index.getResources().equals( Collections.singletonList(RESOURCE_NAME) );
+   }
+
+   @Test
+   public void testStaleDirectory() throws IOException
+   {
+      assert ComponentIndex.read(directory)==null;
+
+      ComponentIndex.create(directory).write(directory);
+      makeOlderThanIndex(directory);
+      assert ComponentIndex.read(directory)!=null;
+
+      // a file modified after the index
+      File resource = new File(directory, RESOURCE_NAME);
+      resource.setLastModified( indexFile().lastModified() + 10000 );
+      assert ComponentIndex.read(directory)==null;
+
+      // a file added after the index
+      makeOlderThanIndex(directory);
+      assert ComponentIndex.read(directory)!=null;
+      File added = new File(directory, "META-INF/pages.xml");
+      write(added, "<pages/>");
+      added.setLastModified( indexFile().lastModified() - 10000 );
+      assert ComponentIndex.read(directory)==null;
+
+      // a file removed after the index
+      added.delete();
+      assert ComponentIndex.read(directory)!=null;
+      new File(directory, UNANNOTATED_CLASS_NAME).delete();
+      assert ComponentIndex.read(directory)==null;
+   }
+
+   @Test
+   public void testArchiveRoundTrip() throws IOException
+   {
+      ComponentIndex.create(directory).write(directory);
+      long indexTime = 1200000000000l;
+      File archive = createArchive(indexTime, indexTime - 60000);
+
+      ComponentIndex index = ComponentIndex.read(archive);
+      assert index!=null;
+      assert index.getClasses().keySet().equals( Collections.singleton(CLASS_NAME) );
+      assert index.getResources().equals( Collections.singletonList(RESOURCE_NAME) );
+   }
+
+   @Test
+   public void testArchiveTimeResolution() throws IOException
+   {
+      ComponentIndex.create(directory).write(directory);
+      long indexTime = 1200000000000l;
+
+      // zip entry times may be rounded to two seconds, so an entry
+      // which appears one tick newer than the index is not stale
+      assert ComponentIndex.read( createArchive(indexTime, indexTime) )!=null;
+      assert ComponentIndex.read( createArchive(indexTime, indexTime + 2000) )!=null;
+
+      // but an entry which is clearly newer is
+      assert ComponentIndex.read( createArchive(indexTime, indexTime + 4000) )==null;
+   }
+
+   /**
+    * Zip the directory, with the given times for the index and for
+    * the other entries
+    */
+   private File createArchive(long indexTime, long entryTime) throws IOException
+   {
+      File archive = File.createTempFile("seam-index", ".jar", directory);
+      ZipOutputStream zip = new ZipOutputStream( new FileOutputStream(archive) );
+      try
+      {
+         addEntries(zip, directory, null, archive, indexTime, entryTime);
+      }
+      finally
+      {
+         zip.close();
+      }
+      return archive;
+   }
+
+   private void addEntries(ZipOutputStream zip, File dir, String path, File archive, long indexTime, long entryTime) throws IOException
+   {
+      for ( File child: dir.listFiles() )
+      {
+         if ( child.equals(archive) || child.getName().endsWith(".jar") )
+         {
+            continue;
+         }
+         String name = path==null ? child.getName() : path + '/' + child.getName();
+         if ( child.isDirectory() )
+         {
+            addEntries(zip, child, name, archive, indexTime, entryTime);
+         }
+         else
+         {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime( name.equals(ComponentIndex.NAME) ? indexTime : entryTime );
+            zip.putNextEntry(entry);
+            copy( new FileInputStream(child), zip );
+            zip.closeEntry();
+         }
+      }
+   }
+
+   private File indexFile()
+   {
+      return new File(directory, ComponentIndex.NAME);
+   }
+
+   private void makeOlderThanIndex(File dir)
+   {
+      long time = indexFile().lastModified() - 10000;
+      for ( File child: dir.listFiles() )
+      {
+         if ( child.isDirectory() )
+         {
+            makeOlderThanIndex(child);
+         }
+         else if ( !child.equals( indexFile() ) )
+         {
+            child.setLastModified(time);
+         }
+      }
+   }
+
+   private static String getFileName(Class clazz)
+   {
+      return clazz.getName().replace('.', '/') + ".class";
+   }
+
+   private void copyClass(String name) throws IOException
+   {
+      File file = new File(directory, name);
+      file.getParentFile().mkdirs();
+      InputStream stream = ComponentIndexTest.class.getClassLoader().getResourceAsStream(name);
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         copy(stream, out);
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static void write(File file, String content) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write( content.getBytes("UTF-8") );
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static void copy(InputStream in, OutputStream out) throws IOException
+   {
+      try
+      {
+         byte[] buffer = new byte[4096];
+         int read;
+         while ( (read = in.read(buffer))!=-1 )
+         {
+            out.write(buffer, 0, read);
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private static void delete(File file)
+   {
+      File[] children = file.listFiles();
+      if (children!=null)
+      {
+         for (File child: children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+
+   @Name("indexed")
+   public static class Indexed {}
+
+   public static class Unannotated {}
+
+}
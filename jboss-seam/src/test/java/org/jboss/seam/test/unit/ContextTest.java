@@ -1,14 +1,25 @@
 //$Id: ContextTest.java 11208 2009-06-25 14:55:53Z manaRH $
 package org.jboss.seam.test.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.el.ELContext;
 import javax.faces.context.ExternalContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSessionActivationListener;
+import javax.servlet.http.HttpSessionEvent;
 
 import org.jboss.seam.Component;
 import org.jboss.seam.Namespace;
+import org.jboss.seam.ScopeType;
 import org.jboss.seam.Seam;
 import org.jboss.seam.contexts.ApplicationContext;
 import org.jboss.seam.contexts.Context;
@@ -19,6 +30,7 @@ import org.jboss.seam.contexts.ServerConversationContext;
 import org.jboss.seam.contexts.ServletLifecycle;
 import org.jboss.seam.contexts.SessionContext;
 import org.jboss.seam.core.ConversationEntries;
+import org.jboss.seam.core.ConversationEntry;
 import org.jboss.seam.core.Init;
 import org.jboss.seam.core.Manager;
 import org.jboss.seam.el.EL;
@@ -184,7 +196,7 @@ public class ContextTest {
         assert !Contexts.isConversationContextActive();
         assert !Contexts.isApplicationContextActive();
         assert ((MockHttpSession) externalContext.getSession(false))
-                .getAttributes().size() == 3; // foo, zzz, org.jboss.seam.core.conversationEntries
+                .getAttributes().size() == 4; // foo, zzz, org.jboss.seam.core.conversationEntries, org.jboss.seam.CONVERSATION$migrated
         assert ((MockServletContext) externalContext.getContext())
                 .getAttributes().size() == 12;
 
@@ -239,6 +251,191 @@ public class ContextTest {
         ServletLifecycle.endApplication();
     }
     
+    @Test
+    public void testLookupCache() {
+        MockServletContext servletContext = new MockServletContext();
+        ServletLifecycle.beginApplication(servletContext);
+        MockHttpSession session = new MockHttpSession(servletContext);
+        MockHttpServletRequest request = new MockHttpServletRequest(session);
+        ExternalContext externalContext = new MockExternalContext(
+                servletContext, request);
+        Context appContext = new ApplicationContext(externalContext
+                .getApplicationMap());
+        installComponent(appContext, ConversationEntries.class);
+        installComponent(appContext, Manager.class);
+        Init init = new Init();
+        init.setContextLookupCache(true);
+        appContext.set(Seam.getComponentName(Init.class), init);
+        FacesLifecycle.beginRequest(externalContext);
+        assert Contexts.isLookupCacheEnabled();
+        Contexts.resetLookupCache();
+        long hits = Contexts.getLookupCacheHits();
+        long misses = Contexts.getLookupCacheMisses();
+
+        Contexts.getApplicationContext().set("foo", "application");
+        assert "application".equals(Contexts.lookupInStatefulContexts("foo"));
+        assert "application".equals(Contexts.lookupInStatefulContexts("foo"));
+
+        // a variable set in a context of higher precedence shadows the cached one
+        Contexts.getSessionContext().set("foo", "session");
+        assert "session".equals(Contexts.lookupInStatefulContexts("foo"));
+        Contexts.getEventContext().set("foo", "event");
+        assert "event".equals(Contexts.lookupInStatefulContexts("foo"));
+        Contexts.getEventContext().remove("foo");
+        assert "session".equals(Contexts.lookupInStatefulContexts("foo"));
+        Contexts.getSessionContext().remove("foo");
+        assert "application".equals(Contexts.lookupInStatefulContexts("foo"));
+
+        // as is one set in the shared session by another thread
+        session.setAttribute("foo", "other");
+        assert "other".equals(Contexts.lookupInStatefulContexts("foo"));
+        session.removeAttribute("foo");
+        Contexts.getApplicationContext().remove("foo");
+        assert Contexts.lookupInStatefulContexts("foo") == null;
+
+        Contexts.resetLookupCache();
+        assert Contexts.getLookupCacheHits() == hits + 1;
+        assert Contexts.getLookupCacheMisses() == misses + 7;
+
+        ServletLifecycle.endApplication();
+    }
+
+    @Test
+    public void testLookupCacheDisabled() {
+        MockServletContext servletContext = new MockServletContext();
+        ServletLifecycle.beginApplication(servletContext);
+        MockHttpSession session = new MockHttpSession(servletContext);
+        MockHttpServletRequest request = new MockHttpServletRequest(session);
+        ExternalContext externalContext = new MockExternalContext(
+                servletContext, request);
+        Context appContext = new ApplicationContext(externalContext
+                .getApplicationMap());
+        installComponent(appContext, ConversationEntries.class);
+        installComponent(appContext, Manager.class);
+        appContext.set(Seam.getComponentName(Init.class), new Init());
+        FacesLifecycle.beginRequest(externalContext);
+        assert !Contexts.isLookupCacheEnabled();
+        assert !Contexts.isResolutionMemoEnabled();
+        Contexts.memoizeResolution("foo", "bar");
+        assert Contexts.getMemoizedResolution("foo") == null;
+
+        ServletLifecycle.endApplication();
+    }
+
+    @Test
+    public void testResolutionMemo() {
+        MockServletContext servletContext = new MockServletContext();
+        ServletLifecycle.beginApplication(servletContext);
+        MockHttpSession session = new MockHttpSession(servletContext);
+        MockHttpServletRequest request = new MockHttpServletRequest(session);
+        ExternalContext externalContext = new MockExternalContext(
+                servletContext, request);
+        Context appContext = new ApplicationContext(externalContext
+                .getApplicationMap());
+        installComponent(appContext, ConversationEntries.class);
+        installComponent(appContext, Manager.class);
+        Init init = new Init();
+        init.setElResolutionMemo(true);
+        appContext.set(Seam.getComponentName(Init.class), init);
+        FacesLifecycle.beginRequest(externalContext);
+        Contexts.memoizeResolution("foo", "bar");
+        assert "bar".equals(Contexts.getMemoizedResolution("foo"));
+
+        // setting a qualified name which ends with the identifier drops it
+        Contexts.getEventContext().set("org.jboss.seam.foo", "baz");
+        assert Contexts.getMemoizedResolution("foo") == null;
+
+        Contexts.memoizeResolution("foo", "bar");
+        Contexts.resetLookupCache();
+        assert Contexts.getMemoizedResolution("foo") == null;
+
+        ServletLifecycle.endApplication();
+    }
+
+    @Test
+    public void testLegacyConversationAttributes() {
+        Map<String, Object> session = new HashMap<String, Object>();
+        session.put(ScopeType.CONVERSATION.getPrefix() + "#1$foo", "bar");
+        session.put(ScopeType.CONVERSATION.getPrefix() + "#2$foo", "baz");
+        session.put("foo", "qux");
+
+        Context conversationContext = new ServerConversationContext(session, "1");
+        assert conversationContext.get("foo").equals("bar");
+        assert conversationContext.getNames().length == 1;
+        assert !session.containsKey(ScopeType.CONVERSATION.getPrefix() + "#1$foo");
+        assert !session.containsKey(ScopeType.CONVERSATION.getPrefix() + "#2$foo");
+        assert session.containsKey(ServerConversationContext.getSessionAttributeName("1"));
+
+        conversationContext = new ServerConversationContext(session, "2");
+        assert conversationContext.get("foo").equals("baz");
+        assert session.get("foo").equals("qux");
+    }
+
+    @Test
+    public void testConversationMigrationMarker() {
+        Map<String, Object> session = new HashMap<String, Object>();
+        session.put("foo", "qux");
+
+        new ServerConversationContext(session, "1").get("foo");
+        assert session.containsKey(ScopeType.CONVERSATION.getPrefix() + "$migrated");
+
+        Map<String, Object> emptySession = new HashMap<String, Object>();
+        new ServerConversationContext(emptySession, "1").get("foo");
+        assert emptySession.isEmpty();
+    }
+
+    @Test
+    public void testConversationVariablesActivation() {
+        Map<String, Object> session = new HashMap<String, Object>();
+        ActivationListener listener = new ActivationListener();
+        session.put(ScopeType.CONVERSATION.getPrefix() + "#1$listener", listener);
+        session.put(ScopeType.CONVERSATION.getPrefix() + "#1$foo", "bar");
+
+        Context conversationContext = new ServerConversationContext(session, "1");
+        assert conversationContext.get("listener") == listener;
+
+        Object attribute = session.get(ServerConversationContext.getSessionAttributeName("1"));
+        assert attribute instanceof HttpSessionActivationListener;
+        HttpSessionEvent event = new HttpSessionEvent(new MockHttpSession(new MockServletContext()));
+        ((HttpSessionActivationListener) attribute).sessionWillPassivate(event);
+        assert listener.passivated == 1;
+        ((HttpSessionActivationListener) attribute).sessionDidActivate(event);
+        assert listener.activated == 1;
+    }
+
+    @Test
+    public void testConversationIdUpdateAfterDeserialization() throws Exception {
+        ConversationEntries entries = new ConversationEntries();
+        entries.createConversationEntry("1", new ArrayList<String>(Arrays.asList("1")));
+
+        // the timeout index is transient
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(entries);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        entries = (ConversationEntries) in.readObject();
+        in.close();
+
+        assert entries.updateConversationId("1", "2") != null;
+        List<ConversationEntry> timedOut = entries.getTimedOutConversationEntries(System.currentTimeMillis(), 1000);
+        assert timedOut.size() == 1;
+        assert "2".equals(timedOut.get(0).getId());
+    }
+
+    private static class ActivationListener implements HttpSessionActivationListener {
+        int passivated;
+        int activated;
+
+        public void sessionWillPassivate(HttpSessionEvent event) {
+            passivated++;
+        }
+
+        public void sessionDidActivate(HttpSessionEvent event) {
+            activated++;
+        }
+    }
+
     private interface ContextCreator {
         Context createContext();
     }
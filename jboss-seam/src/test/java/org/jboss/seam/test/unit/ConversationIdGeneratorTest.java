@@ -0,0 +1,108 @@
+package org.jboss.seam.test.unit;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.seam.core.ConversationIdGenerator;
+import org.testng.annotations.Test;
+
+public class ConversationIdGeneratorTest
+{
+
+   private static final int NODES = 4;
+   private static final int THREADS_PER_NODE = 4;
+   private static final int IDS_PER_THREAD = 5000;
+
+   @Test
+   public void testCounter() throws Exception
+   {
+      assertUnique(ConversationIdGenerator.COUNTER);
+   }
+
+   @Test
+   public void testStriped() throws Exception
+   {
+      assertUnique(ConversationIdGenerator.STRIPED);
+   }
+
+   @Test
+   public void testTime() throws Exception
+   {
+      assertUnique(ConversationIdGenerator.TIME);
+
+      ConversationIdGenerator generator = createGenerator(ConversationIdGenerator.TIME, "7");
+      long last = 0;
+      for (int i=0; i<10000; i++)
+      {
+         long id = Long.parseLong( generator.getNextId() );
+         assert id>last;
+         last = id;
+      }
+   }
+
+   @Test
+   public void testNodeId()
+   {
+      ConversationIdGenerator generator = createGenerator(ConversationIdGenerator.COUNTER, "node 1");
+      assert generator.getNextId().startsWith("node_1-");
+      generator.setNodeId(null);
+      Long.parseLong( generator.getNextId() );
+
+      try
+      {
+         generator.setStrategy("random");
+         assert false;
+      }
+      catch (IllegalArgumentException iae) {}
+   }
+
+   /**
+    * Generate ids on several threads of several simulated nodes,
+    * each node having its own generator, and check that no id
+    * is generated twice
+    */
+   private void assertUnique(String strategy) throws Exception
+   {
+      final Set<String> ids = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+      final AtomicInteger collisions = new AtomicInteger();
+      Thread[] threads = new Thread[NODES * THREADS_PER_NODE];
+      for (int node=0; node<NODES; node++)
+      {
+         final ConversationIdGenerator generator = createGenerator( strategy, Integer.toString(node) );
+         for (int i=0; i<THREADS_PER_NODE; i++)
+         {
+            threads[node * THREADS_PER_NODE + i] = new Thread()
+            {
+               @Override
+               public void run()
+               {
+                  for (int j=0; j<IDS_PER_THREAD; j++)
+                  {
+                     if ( !ids.add( generator.getNextId() ) )
+                     {
+                        collisions.incrementAndGet();
+                     }
+                  }
+               }
+            };
+         }
+      }
+
+      for (Thread thread: threads) thread.start();
+      for (Thread thread: threads) thread.join();
+
+      assert collisions.get()==0 : collisions.get() + " collisions";
+      assert ids.size()==threads.length * IDS_PER_THREAD;
+   }
+
+   private ConversationIdGenerator createGenerator(String strategy, String nodeId)
+   {
+      ConversationIdGenerator generator = new ConversationIdGenerator();
+      generator.setStrategy(strategy);
+      generator.setNodeId(nodeId);
+      return generator;
+   }
+
+}
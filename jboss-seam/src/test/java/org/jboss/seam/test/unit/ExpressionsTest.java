@@ -52,6 +52,21 @@ public class ExpressionsTest
       assertEquals(expressions.createValueExpression(expr).getValue(), "bar");
    }
    
+   @Test
+   public void testParsedExpressionsCached()
+   {
+      Expressions expressions = new Expressions();
+      javax.el.ValueExpression first = expressions.createValueExpression("#{foo.bar}").toUnifiedValueExpression();
+      javax.el.ValueExpression second = expressions.createValueExpression("#{foo.bar}").toUnifiedValueExpression();
+      assert first == second;
+      assert expressions.getExpressionCacheMisses() == 1;
+      assert expressions.getExpressionCacheHits() == 1;
+      
+      assert expressions.createValueExpression("#{foo.bar}", String.class).toUnifiedValueExpression() != first;
+      assert expressions.createMethodExpression("#{foo.bar}").toUnifiedMethodExpression() != null;
+      assert expressions.getExpressionCacheMisses() == 3;
+   }
+   
    protected FacesContext setupFacesContextToAccessRequestParams(Map<String, String> params)
    {
       MockHttpServletRequest request = new MockHttpServletRequest(new MockHttpSession());
@@ -932,6 +932,9 @@ public class InterceptorTest
       ConversationalInterceptor ci = new ConversationalInterceptor();
       ci.setComponent( new Component(Bar.class, appContext) );
       
+      assert ci.isInterceptorEnabled( InterceptorTest.getMethod("foo") );
+      assert !ci.isInterceptorEnabled( InterceptorTest.getMethod("begin") );
+      
       assert !Manager.instance().isLongRunningConversation();
       
       try
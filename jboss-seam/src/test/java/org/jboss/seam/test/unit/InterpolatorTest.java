@@ -51,6 +51,10 @@ public class InterpolatorTest extends MockContainerTest
                 
         Assert.assertEquals(interpolator.interpolate("{0,date,short}", date), DateFormat.getDateInstance(DateFormat.SHORT).format(date)); 
         
+        // test that a compiled template depends on the parameters of each call
+        Assert.assertEquals(interpolator.interpolate("#0 {0}"), "#0 {0}");
+        Assert.assertEquals(interpolator.interpolate("#0 {0}", "x"), "x x");
+        
         // test that a messageformat error doesn't blow up
         Assert.assertEquals(interpolator.interpolate("{nosuchmessage}"), "{nosuchmessage}");
         
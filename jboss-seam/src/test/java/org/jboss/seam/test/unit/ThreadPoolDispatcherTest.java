@@ -0,0 +1,257 @@
+package org.jboss.seam.test.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.Component;
+import org.jboss.seam.ScopeType;
+import org.jboss.seam.annotations.Name;
+import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.annotations.intercept.BypassInterceptors;
+import org.jboss.seam.async.ThreadPoolDispatcher;
+import org.jboss.seam.async.TimerSchedule;
+import org.jboss.seam.contexts.Contexts;
+import org.jboss.seam.contexts.Lifecycle;
+import org.jboss.seam.core.Events;
+import org.jboss.seam.core.Init;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the queue of asynchronous events of ThreadPoolDispatcher
+ */
+public class ThreadPoolDispatcherTest extends MockContainerTest
+{
+   @Override
+   protected Class[] getComponentsToInstall()
+   {
+      return new Class[] { Events.class, Observer.class };
+   }
+
+   private Observer installObserver() throws Exception
+   {
+      Observer observer = new Observer();
+      Contexts.getApplicationContext().set("dispatcherTestObserver", observer);
+      Component component = Component.forName("dispatcherTestObserver");
+      Init init = Init.instance();
+      init.addObserverMethod("block", Observer.class.getMethod("block"), component, false);
+      init.addObserverMethod("foo", Observer.class.getMethod("observe", String.class), component, false);
+      init.addObserverMethod("bar", Observer.class.getMethod("observe", String.class), component, false);
+      init.addObserverMethod("chain", Observer.class.getMethod("chain", String.class), component, false);
+      return observer;
+   }
+
+   private ThreadPoolDispatcher createDispatcher(int batchSize, int queueCapacity, String rejectionPolicy)
+   {
+      ThreadPoolDispatcher dispatcher = new ThreadPoolDispatcher();
+      dispatcher.setThreadPoolSize(2);
+      dispatcher.setBatchSize(batchSize);
+      dispatcher.setQueueCapacity(queueCapacity);
+      dispatcher.setRejectionPolicy(rejectionPolicy);
+      dispatcher.setCoalescedEventTypes( Collections.singleton("foo") );
+      dispatcher.startup();
+      return dispatcher;
+   }
+
+   /**
+    * Queue an event which blocks the thread draining the queue,
+    * and wait until it does
+    */
+   private Future block(ThreadPoolDispatcher dispatcher, Observer observer) throws Exception
+   {
+      Future future = dispatcher.scheduleAsynchronousEvent("block");
+      assert observer.entered.await(5, TimeUnit.SECONDS);
+      return future;
+   }
+
+   @Test
+   public void testBatchingAndCoalescing() throws Exception
+   {
+      Observer observer = installObserver();
+      ThreadPoolDispatcher dispatcher = createDispatcher(10, 0, ThreadPoolDispatcher.BLOCK);
+      try
+      {
+         Future blocked = block(dispatcher, observer);
+
+         // a timed event is not starved by the thread draining the queue
+         Future timed = dispatcher.scheduleTimedEvent( "bar", new TimerSchedule(0l), "timed" );
+         timed.get(5, TimeUnit.SECONDS);
+         assert observer.values.contains("timed");
+
+         List<Future> futures = new ArrayList<Future>();
+         futures.add( dispatcher.scheduleAsynchronousEvent("foo", "a") );
+         futures.add( dispatcher.scheduleAsynchronousEvent("foo", "a") );
+         futures.add( dispatcher.scheduleAsynchronousEvent("foo", "b") );
+         observer.released.countDown();
+         blocked.get(5, TimeUnit.SECONDS);
+         for (Future future: futures)
+         {
+            future.get(5, TimeUnit.SECONDS);
+         }
+
+         // the equal events are raised once, in a single set of contexts
+         assert observer.values.equals( Arrays.asList("timed", "a", "b") );
+         assert observer.eventContexts.get(1) == observer.eventContexts.get(2);
+      }
+      finally
+      {
+         observer.released.countDown();
+         dispatcher.destroy();
+      }
+   }
+
+   @Test
+   public void testDropPolicy() throws Exception
+   {
+      Observer observer = installObserver();
+      ThreadPoolDispatcher dispatcher = createDispatcher(10, 1, ThreadPoolDispatcher.DROP);
+      try
+      {
+         block(dispatcher, observer);
+         Future queued = dispatcher.scheduleAsynchronousEvent("foo", "a");
+         Future dropped = dispatcher.scheduleAsynchronousEvent("foo", "b");
+         assert dropped.isCancelled();
+         observer.released.countDown();
+         queued.get(5, TimeUnit.SECONDS);
+         assert observer.values.equals( Collections.singletonList("a") );
+      }
+      finally
+      {
+         observer.released.countDown();
+         dispatcher.destroy();
+      }
+   }
+
+   @Test
+   public void testCallerRunsPolicy() throws Exception
+   {
+      Observer observer = installObserver();
+      ThreadPoolDispatcher dispatcher = createDispatcher(10, 1, ThreadPoolDispatcher.CALLER_RUNS);
+      try
+      {
+         block(dispatcher, observer);
+         Future queued = dispatcher.scheduleAsynchronousEvent("foo", "a");
+         Future rejected = dispatcher.scheduleAsynchronousEvent("foo", "b");
+         assert rejected.isDone();
+         assert observer.values.equals( Collections.singletonList("b") );
+         assert observer.threads.get(0) == Thread.currentThread();
+         observer.released.countDown();
+         queued.get(5, TimeUnit.SECONDS);
+         assert observer.values.equals( Arrays.asList("b", "a") );
+      }
+      finally
+      {
+         observer.released.countDown();
+         dispatcher.destroy();
+      }
+   }
+
+   @Test
+   public void testBlockPolicy() throws Exception
+   {
+      Observer observer = installObserver();
+      final ThreadPoolDispatcher dispatcher = createDispatcher(10, 1, ThreadPoolDispatcher.BLOCK);
+      try
+      {
+         block(dispatcher, observer);
+         Future queued = dispatcher.scheduleAsynchronousEvent("foo", "a");
+         Thread caller = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               Lifecycle.beginCall();
+               try
+               {
+                  dispatcher.scheduleAsynchronousEvent("foo", "b");
+               }
+               finally
+               {
+                  Lifecycle.endCall();
+               }
+            }
+         };
+         caller.start();
+         caller.join(200);
+         assert caller.isAlive();
+         observer.released.countDown();
+         caller.join(5000);
+         assert !caller.isAlive();
+         queued.get(5, TimeUnit.SECONDS);
+         long end = System.currentTimeMillis() + 5000;
+         while ( observer.values.size()<2 && System.currentTimeMillis()<end )
+         {
+            Thread.sleep(10);
+         }
+         assert new HashSet<String>(observer.values).equals( new HashSet<String>( Arrays.asList("a", "b") ) );
+      }
+      finally
+      {
+         observer.released.countDown();
+         dispatcher.destroy();
+      }
+   }
+
+   @Test
+   public void testBlockPolicyInDrainer() throws Exception
+   {
+      Observer observer = installObserver();
+      ThreadPoolDispatcher dispatcher = createDispatcher(1, 1, ThreadPoolDispatcher.BLOCK);
+      observer.dispatcher = dispatcher;
+      try
+      {
+         // the only drainer raises events into the full queue
+         dispatcher.scheduleAsynchronousEvent("chain", "x").get(5, TimeUnit.SECONDS);
+         for (Future future: observer.raised)
+         {
+            future.get(5, TimeUnit.SECONDS);
+         }
+         assert new HashSet<String>(observer.values).equals( new HashSet<String>( Arrays.asList("x1", "x2", "x3") ) );
+      }
+      finally
+      {
+         dispatcher.destroy();
+      }
+   }
+
+   @Name("dispatcherTestObserver")
+   @Scope(ScopeType.APPLICATION)
+   @BypassInterceptors
+   public static class Observer
+   {
+      final List<String> values = Collections.synchronizedList( new ArrayList<String>() );
+      final List<Object> eventContexts = Collections.synchronizedList( new ArrayList<Object>() );
+      final List<Thread> threads = Collections.synchronizedList( new ArrayList<Thread>() );
+      final CountDownLatch entered = new CountDownLatch(1);
+      final CountDownLatch released = new CountDownLatch(1);
+      final List<Future> raised = Collections.synchronizedList( new ArrayList<Future>() );
+      ThreadPoolDispatcher dispatcher;
+
+      public void observe(String value)
+      {
+         values.add(value);
+         eventContexts.add( Contexts.getEventContext() );
+         threads.add( Thread.currentThread() );
+      }
+
+      public void chain(String value)
+      {
+         for (int i=1; i<=3; i++)
+         {
+            raised.add( dispatcher.scheduleAsynchronousEvent("foo", value + i) );
+         }
+      }
+
+      public void block() throws InterruptedException
+      {
+         entered.countDown();
+         released.await(5, TimeUnit.SECONDS);
+      }
+   }
+
+}
@@ -1,9 +1,13 @@
 package org.jboss.seam.test.unit.web;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.testng.annotations.Test;
 
 import org.jboss.seam.web.Pattern;
 import org.jboss.seam.web.Rewrite;
+import org.jboss.seam.web.RewriteRouter;
 import org.jboss.seam.web.ServletMapping;
 
 import static org.testng.Assert.*;
@@ -111,6 +115,166 @@ public class RewriteTest
     }
     
     
+    @Test
+    public void testRouterIncomingExtensionMapping()
+        throws Exception
+    {
+        RewriteRouter router = new RewriteRouter(createPatterns(), new ServletMapping("*.seam"));
+
+        // the literal pattern comes first, so it wins over {id}
+        testRouterMatchIn(router, "/foo/new",      "/foo.seam");
+        testRouterMatchIn(router, "/foo/new?x=y",  "/foo.seam?x=y");
+        testRouterMatchIn(router, "/foo/12",       "/foo.seam?id=12");
+        testRouterMatchIn(router, "/foo/12?x=y",   "/foo.seam?x=y&id=12");
+        // a segment mixing a literal and a parameter
+        testRouterMatchIn(router, "/x1/2",         "/baz.seam?a=1&b=2");
+        // the unindexable patterns, one of which comes before /qux
+        testRouterMatchIn(router, "/qux",          "/brace.seam?p/q=ux");
+        testRouterMatchIn(router, "/a}b/c",        "/lit.seam");
+
+        testRouterNoMatchIn(router, "/foo");
+        testRouterNoMatchIn(router, "/foo/new/x");
+        testRouterNoMatchIn(router, "/y1/2");
+        testRouterNoMatchIn(router, "/a}b");
+        testRouterNoMatchIn(router, "/foo.seam");
+    }
+
+    @Test
+    public void testRouterIncomingPrefixMapping()
+        throws Exception
+    {
+        RewriteRouter router = new RewriteRouter(createPatterns(), new ServletMapping("/faces/*"));
+
+        testRouterMatchIn(router, "/foo/new",      "/faces/foo.xhtml");
+        testRouterMatchIn(router, "/foo/12?x=y",   "/faces/foo.xhtml?x=y&id=12");
+        testRouterMatchIn(router, "/x1/2",         "/faces/baz.xhtml?a=1&b=2");
+        testRouterMatchIn(router, "/qux",          "/faces/brace.xhtml?p/q=ux");
+        testRouterMatchIn(router, "/a}b/c",        "/faces/lit.xhtml");
+
+        testRouterNoMatchIn(router, "/foo");
+        testRouterNoMatchIn(router, "/y1/2");
+        testRouterNoMatchIn(router, "/faces/foo.xhtml");
+    }
+
+    @Test
+    public void testRouterOutgoingExtensionMapping()
+        throws Exception
+    {
+        RewriteRouter router = new RewriteRouter(createPatterns(), new ServletMapping("*.seam"));
+
+        // the literal pattern comes first, so it wins over {id}
+        testRouterMatchOut(router, "/foo.seam",            "/foo/new");
+        testRouterMatchOut(router, "/foo.seam?id=12",      "/foo/new?id=12");
+        testRouterMatchOut(router, "/bar.seam?id=12&x=y",  "/foo/12?x=y");
+        testRouterMatchOut(router, "/baz.seam?b=2&a=1",    "/x1/2");
+        testRouterMatchOut(router, "/qux.seam",            "/qux");
+        testRouterMatchOut(router, "/lit.seam?x=y",        "/a}b/c?x=y");
+
+        testRouterNoMatchOut(router, "/bar.seam");
+        testRouterNoMatchOut(router, "/baz.seam?a=1");
+        testRouterNoMatchOut(router, "/other.seam");
+        testRouterNoMatchOut(router, "/foo");
+    }
+
+    @Test
+    public void testRouterOutgoingPrefixMapping()
+        throws Exception
+    {
+        RewriteRouter router = new RewriteRouter(createPatterns(), new ServletMapping("/faces/*"));
+
+        testRouterMatchOut(router, "/faces/foo.xhtml?id=12",      "/foo/new?id=12");
+        testRouterMatchOut(router, "/faces/bar.xhtml?id=12",      "/foo/12");
+        testRouterMatchOut(router, "/faces/baz.xhtml?a=1&b=2&c=3", "/x1/2?c=3");
+        testRouterMatchOut(router, "/faces/lit.xhtml",            "/a}b/c");
+
+        testRouterNoMatchOut(router, "/faces/bar.seam?id=12");
+        testRouterNoMatchOut(router, "/faces/bar.xhtml");
+        testRouterNoMatchOut(router, "/foo.xhtml");
+        testRouterNoMatchOut(router, "/faces/foo");
+    }
+
+    @Test
+    public void testRouterWithoutViewMapping()
+        throws Exception
+    {
+        List<Pattern> patterns = createPatterns();
+        for (Pattern pattern: patterns) {
+            pattern.setViewMapping(new ServletMapping("*.seam"));
+        }
+        RewriteRouter router = new RewriteRouter(patterns, null);
+
+        testRouterMatchIn(router, "/foo/new",           "/foo.seam");
+        testRouterMatchIn(router, "/qux",               "/brace.seam?p/q=ux");
+        testRouterMatchOut(router, "/foo.seam?id=12",   "/foo/new?id=12");
+        testRouterMatchOut(router, "/bar.seam?id=12",   "/foo/12");
+        testRouterNoMatchOut(router, "/other.seam");
+    }
+
+    /**
+     * Patterns in order of precedence, mixing literal segments,
+     * parameters, and patterns which the router can't index
+     */
+    private List<Pattern> createPatterns() {
+        return Arrays.asList(
+            new Pattern("/foo.xhtml",   "/foo/new"),
+            new Pattern("/foo.xhtml",   "/foo/{id}"),
+            new Pattern("/bar.xhtml",   "/foo/{id}"),
+            new Pattern("/baz.xhtml",   "/x{a}/{b}"),
+            // a parameter spanning segments
+            new Pattern("/brace.xhtml", "/q{p/q}"),
+            new Pattern("/qux.xhtml",   "/qux"),
+            // unbalanced braces
+            new Pattern("/lit.xhtml",   "/a}b/c"));
+    }
+
+    /**
+     * The router must find the same rewrite as trying every
+     * pattern in turn
+     */
+    private Rewrite matchInLinear(RewriteRouter router, String incoming) {
+        for (Pattern pattern: router.getPatterns()) {
+            Rewrite rewrite = pattern.matchIncoming(incoming);
+            if (rewrite != null) {
+                return rewrite;
+            }
+        }
+        return null;
+    }
+
+    private Rewrite matchOutLinear(RewriteRouter router, String outgoing) {
+        for (Pattern pattern: router.getPatterns()) {
+            Rewrite rewrite = pattern.matchOutgoing(outgoing);
+            if (rewrite != null) {
+                return rewrite;
+            }
+        }
+        return null;
+    }
+
+    public void testRouterNoMatchIn(RewriteRouter router, String incoming) {
+        assertNull(router.matchIncoming(incoming), incoming);
+        assertNull(matchInLinear(router, incoming), incoming);
+    }
+
+    public void testRouterNoMatchOut(RewriteRouter router, String outgoing) {
+        assertNull(router.matchOutgoing(outgoing), outgoing);
+        assertNull(matchOutLinear(router, outgoing), outgoing);
+    }
+
+    public void testRouterMatchIn(RewriteRouter router, String incoming, String expected) {
+        Rewrite rewrite = router.matchIncoming(incoming);
+        assertNotNull(rewrite, incoming);
+        assertEquals(rewrite.rewrite(), expected);
+        assertEquals(matchInLinear(router, incoming).rewrite(), expected);
+    }
+
+    public void testRouterMatchOut(RewriteRouter router, String outgoing, String expected) {
+        Rewrite rewrite = router.matchOutgoing(outgoing);
+        assertNotNull(rewrite, outgoing);
+        assertEquals(rewrite.rewrite(), expected);
+        assertEquals(matchOutLinear(router, outgoing).rewrite(), expected);
+    }
+
     public void testNoMatchIn(Pattern pattern, String incoming) {
         assertNull(pattern.matchIncoming(incoming), incoming);
     }